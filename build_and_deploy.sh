@@ -67,6 +67,11 @@ build_service() {
   cd ..
 }
 
+# Every service depends on the shared JWT verifier, install it (and the parent POM) first
+echo -e "${GREEN}Installing familyjwt...${RESET}"
+mvn -N install -DskipTests > /dev/null 2>&1
+build_service "familyjwt"
+
 # Handle the user's choice for building the JAR file
 case $choice in
   1) build_service "familyauth" ;;
@@ -1,9 +1,12 @@
 package com.strong.familyauth.Controller;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -17,10 +20,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.strong.familyauth.Model.ResponseWrapper;
 import com.strong.familyauth.Model.User;
 import com.strong.familyauth.Service.ImageStorageService;
+import com.strong.familyauth.Service.ImageStorageService.ImageResource;
 import com.strong.familyauth.Service.UserService;
 import com.strong.familyauth.Util.UserException;
 
@@ -36,6 +41,9 @@ public class AuthController {
     @Autowired
     private ImageStorageService imageStorageService;
 
+    @Value("${auth.otp.trustedProxies:1}")
+    private int trustedProxies;
+
     @PostMapping("/checkUsername")
     @PreAuthorize("permitAll()")
     public ResponseEntity<ResponseWrapper<Boolean>> checkUsernameAvailability(
@@ -57,8 +65,9 @@ public class AuthController {
 
     @PostMapping("/sendSignupOtp")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<ResponseWrapper<Void>> sendOtp(@RequestParam("email") String email) throws UserException {
-        userService.sendEmailOtp(email);
+    public ResponseEntity<ResponseWrapper<Void>> sendOtp(@RequestParam("email") String email,
+            HttpServletRequest request) throws UserException {
+        userService.sendEmailOtp(email, clientIp(request));
         return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "OTP sent successfully", null));
     }
 
@@ -86,12 +95,47 @@ public class AuthController {
         return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Token refreshed successfully", tokens));
     }
 
+    /**
+     * Streams an image from GridFS. File ids never point at different bytes,
+     * so the id is a strong ETag, a matching If-None-Match gets a 304 without
+     * a database read, and Range requests are answered with 206 by Spring's
+     * resource region support. A size asks for the smallest stored variant of
+     * a photo at least that large.
+     */
     @GetMapping("/image/{fileId}")
     @PreAuthorize("permitAll()")
-    public ResponseEntity<InputStreamResource> getImage(@PathVariable String fileId) throws UserException {
-        InputStreamResource imageStream = imageStorageService.getImageStream(fileId);
+    public ResponseEntity<Resource> getImage(@PathVariable String fileId,
+            @RequestParam(value = "size", required = false) Integer size, WebRequest request) {
+        String eTag = "\"" + fileId + (size != null ? "-" + size : "") + "\"";
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+
+        ImageResource image = imageStorageService.getImage(fileId, size);
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
         return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_JPEG)
-                .body(imageStream);
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .eTag(eTag)
+                .cacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .body(image);
+    }
+
+    /**
+     * The address the outermost trusted proxy saw. Each proxy appends the peer
+     * it received the request from to X-Forwarded-For, so only the last
+     * trustedProxies hops are known to be real; anything to their left was
+     * sent by the client and can be anything.
+     */
+    private String clientIp(HttpServletRequest request) {
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (trustedProxies > 0 && forwarded != null && !forwarded.isBlank()) {
+            String[] hops = forwarded.split(",");
+            if (hops.length >= trustedProxies) {
+                return hops[hops.length - trustedProxies].trim();
+            }
+        }
+        return request.getRemoteAddr();
     }
 }
@@ -11,6 +11,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
@@ -20,8 +21,11 @@ import org.springframework.web.multipart.MultipartFile;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.strong.familyauth.Model.LiteUser;
+import com.strong.familyauth.Model.Relationship;
 import com.strong.familyauth.Model.ResponseWrapper;
+import com.strong.familyauth.Model.Suggestion;
 import com.strong.familyauth.Model.User;
+import com.strong.familyauth.Service.FollowService;
 import com.strong.familyauth.Service.UserService;
 import com.strong.familyauth.Util.UserException;
 
@@ -34,17 +38,21 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private FollowService followService;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     @PostMapping("/update")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ResponseWrapper<User>> updateProfile(
             @RequestPart(value = "file", required = false) MultipartFile file,
-            @RequestParam("user") String userJson,
-            @RequestPart(value = "thumbnail", required = false) MultipartFile thumbnail)
+            @RequestParam("user") String userJson)
             throws UserException, JsonProcessingException {
 
         ObjectMapper objectMapper = new ObjectMapper();
         User updatedUser = objectMapper.readValue(userJson, User.class);
-        User updatedProfile = userService.updateUser(file, updatedUser, thumbnail);
+        User updatedProfile = userService.updateUser(file, updatedUser);
 
         return ResponseEntity.status(HttpStatus.ACCEPTED)
                 .body(new ResponseWrapper<>(HttpStatus.ACCEPTED.value(), "User updated successfully",
@@ -71,10 +79,11 @@ public class UserController {
     @GetMapping("/search")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ResponseWrapper<?>> searchByUsername(
-            @RequestParam("username") String username) {
+            @RequestParam("username") String username,
+            @RequestParam(defaultValue = "20") int limit) {
 
         // Fetch matching users from the userService
-        List<Map<String, Object>> users = userService.searchByUserName(username);
+        List<Map<String, Object>> users = userService.searchByUserName(username, pageSize(limit));
 
         // If no users are found, return a 404 response
         if (users == null || users.isEmpty()) {
@@ -95,8 +104,17 @@ public class UserController {
         return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Random feed users retrieved", users));
     }
 
+    @GetMapping("/{userId}/suggestions")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<List<Suggestion>>> getSuggestions(@PathVariable String userId,
+            @RequestParam(defaultValue = "20") int limit) throws UserException {
+        List<Suggestion> suggestions = userService.getSuggestions(userId, pageSize(limit));
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Suggestions retrieved", suggestions));
+    }
+
     @GetMapping("/{userId}/lite")
-    public ResponseEntity<ResponseWrapper<LiteUser>> getLiteUserById(@PathVariable String userId) {
+    public ResponseEntity<ResponseWrapper<LiteUser>> getLiteUserById(@PathVariable String userId)
+            throws UserException {
         return userService.findLiteUserById(userId)
                 .map(user -> ResponseEntity
                         .ok(new ResponseWrapper<>(HttpStatus.OK.value(), "User profile retrieved", user)))
@@ -104,6 +122,26 @@ public class UserController {
                         .body(new ResponseWrapper<>(HttpStatus.NOT_FOUND.value(), "User not found", null)));
     }
 
+    @PostMapping("/lite/batch")
+    public ResponseEntity<ResponseWrapper<List<LiteUser>>> getLiteUsersByIds(@RequestBody List<String> userIds)
+            throws UserException {
+        List<LiteUser> users = userService.findLiteUsersByIds(userIds);
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "User profiles retrieved", users));
+    }
+
+    /**
+     * Privacy, follow status and access for up to 500 users as seen by the
+     * viewer, keyed by user id.
+     */
+    @PostMapping("/relationships")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<Map<String, Relationship>>> getRelationships(
+            @RequestParam("viewerId") String viewerId, @RequestBody List<String> userIds) throws UserException {
+        Map<String, Relationship> relationships = userService.getRelationships(viewerId, userIds);
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Relationships retrieved",
+                relationships));
+    }
+
     @GetMapping("/myProfile")
     public ResponseEntity<ResponseWrapper<User>> myProfile(@RequestParam("mineId") String mineId) throws UserException {
         return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "User profile retrieved",
@@ -169,6 +207,43 @@ public class UserController {
         }
     }
 
+    @GetMapping("/{userId}/followers")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<List<String>>> getFollowers(@PathVariable String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<String> ids = followService.getFollowers(userId, Math.max(page, 0), pageSize(size));
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Followers retrieved", ids));
+    }
+
+    @GetMapping("/{userId}/following")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<List<String>>> getFollowing(@PathVariable String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<String> ids = followService.getFollowing(userId, Math.max(page, 0), pageSize(size));
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Following retrieved", ids));
+    }
+
+    @GetMapping("/{userId}/followRequests")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<List<String>>> getFollowRequests(@PathVariable String userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        List<String> ids = followService.getFollowRequests(userId, Math.max(page, 0), pageSize(size));
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Follow requests retrieved", ids));
+    }
+
+    @GetMapping("/{userId}/followCounts")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<Map<String, Long>>> getFollowCounts(@PathVariable String userId) {
+        Map<String, Long> counts = Map.of(
+                "followers", followService.countFollowers(userId),
+                "following", followService.countFollowing(userId),
+                "followRequests", followService.countFollowRequests(userId));
+        return ResponseEntity.ok(new ResponseWrapper<>(HttpStatus.OK.value(), "Follow counts retrieved", counts));
+    }
+
     @PostMapping("/logout")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ResponseWrapper<Void>> logout(HttpServletRequest request) throws UserException {
@@ -181,4 +256,8 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(new ResponseWrapper<>(HttpStatus.UNAUTHORIZED.value(), "Invalid token", null));
     }
+
+    private static int pageSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+    }
 }
@@ -10,16 +10,20 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.strong.familyauth.Model.User;
+import com.strong.familyauth.Util.UserCodec;
 
 @SpringBootApplication(exclude = { DataSourceAutoConfiguration.class })
 @EnableDiscoveryClient
+@EnableScheduling
 public class FamilyauthApplication {
 
 	@Value("${spring.redis.host}")
@@ -36,7 +40,8 @@ public class FamilyauthApplication {
 	}
 
 	@Bean
-	public RedisTemplate<String, User> redisTemplate(RedisConnectionFactory connectionFactory) {
+	public RedisTemplate<String, User> redisTemplate(RedisConnectionFactory connectionFactory,
+			@Value("${auth.userCache.format:JSON}") UserCodec.Format format) {
 		RedisTemplate<String, User> template = new RedisTemplate<>();
 		template.setConnectionFactory(connectionFactory);
 		template.setKeySerializer(new StringRedisSerializer());
@@ -45,13 +50,21 @@ public class FamilyauthApplication {
 		objectMapper.registerModule(new JavaTimeModule());
 		objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
-		Jackson2JsonRedisSerializer<User> valueSerializer = new Jackson2JsonRedisSerializer<>(objectMapper, User.class);
+		Jackson2JsonRedisSerializer<User> jsonSerializer = new Jackson2JsonRedisSerializer<>(objectMapper, User.class);
 
-		template.setValueSerializer(valueSerializer);
+		// Reads both formats, writes the configured one
+		template.setValueSerializer(new UserCodec(jsonSerializer, format));
 		template.afterPropertiesSet();
 		return template;
 	}
 
+	@Bean
+	public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(connectionFactory);
+		return container;
+	}
+
 	@Bean
 	public LettuceConnectionFactory redisConnectionFactory() {
 		RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration();
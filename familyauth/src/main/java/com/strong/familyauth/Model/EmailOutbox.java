@@ -0,0 +1,52 @@
+package com.strong.familyauth.Model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An email waiting in the outbox. Request threads only insert these, the
+ * EmailOutboxWorker claims and sends them. The body, which may hold an OTP,
+ * is cleared once an entry is sent or has failed for good, and both kinds of
+ * finished entries expire after a week.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "email_outbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}"),
+        @CompoundIndex(name = "dedup_created", def = "{'dedupKey': 1, 'createdAt': -1}", sparse = true)
+})
+public class EmailOutbox {
+
+    public enum Status {
+        PENDING, SENDING, SENT, FAILED
+    }
+
+    @Id
+    private String id;
+    private String to;
+    private String subject;
+    private String body;
+    private String dedupKey;
+    private Status status;
+    private int attempts;
+    private Instant createdAt;
+    private Instant nextAttemptAt;
+    private Instant claimedAt;
+    private String lastError;
+
+    @Indexed(expireAfterSeconds = 7 * 24 * 3600)
+    private Instant sentAt;
+
+    @Indexed(expireAfterSeconds = 7 * 24 * 3600)
+    private Instant failedAt;
+
+}
@@ -0,0 +1,45 @@
+package com.strong.familyauth.Model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single follow edge between two users. REQUESTED edges are pending follow
+ * requests to private accounts, ACCEPTED edges are real follows.
+ * Indexed from both ends so followers and following can be paged without
+ * loading the other side, by (createdAt, _id) so edges with the same
+ * timestamp still have a stable order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "follows")
+@CompoundIndexes({
+        @CompoundIndex(name = "follower_following", def = "{'followerId': 1, 'followingId': 1}", unique = true),
+        @CompoundIndex(name = "following_status_created_id",
+                def = "{'followingId': 1, 'status': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "follower_status_created_id",
+                def = "{'followerId': 1, 'status': 1, 'createdAt': -1, '_id': -1}")
+})
+public class Follow {
+
+    public enum Status {
+        REQUESTED, ACCEPTED
+    }
+
+    @Id
+    private String id;
+    private String followerId;
+    private String followingId;
+    private Status status;
+    private Instant createdAt;
+
+}
@@ -0,0 +1,12 @@
+package com.strong.familyauth.Model;
+
+/**
+ * FollowEvent is a single follow or unfollow, published to user-update as
+ * {"id", "event", "memberId"} where id follows or stops following memberId.
+ * The suggestion graph applies it as an edge change. Follow sets are not kept
+ * on the user document; the follows collection is the only store.
+ */
+public enum FollowEvent {
+    ADD_FOLLOWING,
+    REMOVE_FOLLOWING
+}
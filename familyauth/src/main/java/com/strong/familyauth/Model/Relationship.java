@@ -0,0 +1,19 @@
+package com.strong.familyauth.Model;
+
+import lombok.Data;
+
+/**
+ * How one viewer relates to one target user.
+ */
+@Data
+public class Relationship {
+    private String userId;
+    private boolean privacy;
+    // viewer follows the target
+    private boolean following;
+    // target follows the viewer
+    private boolean followedBy;
+    // viewer has a pending request to the target
+    private boolean requested;
+    private boolean canAccess;
+}
@@ -0,0 +1,16 @@
+package com.strong.familyauth.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A suggested user and how many of the viewer's followees follow them.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Suggestion {
+    private LiteUser user;
+    private int mutuals;
+}
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.Set;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.security.core.GrantedAuthority;
@@ -35,10 +36,16 @@ public class User implements UserDetails {
     private boolean accountNonLocked;
     private boolean enabled;
     private boolean privacy;
-    private Set<String> followRequests;
     private boolean credentialsNonExpired;
+
+    // Not stored or cached; profile responses fill them from the follow edges
+    @Transient
+    private Set<String> followRequests;
+    @Transient
     private Set<String> followers;
+    @Transient
     private Set<String> following;
+
     private String website;
     private Collection<? extends GrantedAuthority> authorities;
 
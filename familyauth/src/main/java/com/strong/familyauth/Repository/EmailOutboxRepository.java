@@ -0,0 +1,15 @@
+package com.strong.familyauth.Repository;
+
+import java.time.Instant;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.strong.familyauth.Model.EmailOutbox;
+import com.strong.familyauth.Model.EmailOutbox.Status;
+
+public interface EmailOutboxRepository extends MongoRepository<EmailOutbox, String> {
+
+    boolean existsByDedupKeyAndCreatedAtAfter(String dedupKey, Instant createdAfter);
+
+    long countByStatus(Status status);
+}
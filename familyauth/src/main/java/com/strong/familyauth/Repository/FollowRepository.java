@@ -0,0 +1,24 @@
+package com.strong.familyauth.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import com.strong.familyauth.Model.Follow;
+import com.strong.familyauth.Model.Follow.Status;
+
+public interface FollowRepository extends MongoRepository<Follow, String> {
+
+    Optional<Follow> findByFollowerIdAndFollowingId(String followerId, String followingId);
+
+    boolean existsByFollowerIdAndFollowingIdAndStatus(String followerId, String followingId, Status status);
+
+    List<Follow> findByFollowerIdAndFollowingIdInAndStatus(String followerId, Collection<String> followingIds,
+            Status status);
+
+    long countByFollowingIdAndStatus(String followingId, Status status);
+
+    long countByFollowerIdAndStatus(String followerId, Status status);
+}
@@ -1,8 +1,8 @@
 package com.strong.familyauth.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
@@ -20,14 +20,7 @@ public interface UserRepository extends MongoRepository<User, String> {
     @Query("{ 'email' : ?0 }")
     Optional<User> findByEmail(@Param("email") String email);
 
-    // Get followers by user ID
-    @Query(value = "{ 'id' : ?0 }", fields = "{ 'followers' : 1 }")
-    Optional<Set<String>> getFollowersById(@Param("id") String id);
-
-    // Get following by user ID
-    @Query(value = "{ 'id' : ?0 }", fields = "{ 'following' : 1 }")
-    Optional<Set<String>> getFollowingById(@Param("id") String id);
-
-    @Query("{ 'username' : { $regex: ?0, $options: 'i' } }")
-    List<User> findByUsernameContaining(@Param("username") String username);
+    // Only id and privacy of the given users
+    @Query(value = "{ '_id' : { $in: ?0 } }", fields = "{ 'privacy' : 1 }")
+    List<User> findPrivacyByIdIn(Collection<String> ids);
 }
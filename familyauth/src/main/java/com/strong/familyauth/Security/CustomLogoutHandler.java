@@ -4,8 +4,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.logout.LogoutHandler;
 
-import com.strong.familyauth.Model.Token;
-import com.strong.familyauth.Repository.TokenRepository;
+import com.strong.familyauth.Service.TokenStore;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -15,21 +14,20 @@ import jakarta.servlet.http.HttpServletResponse;
  * logout operations.
  * It implements the LogoutHandler interface and performs custom logic during
  * logout, such as
- * updating the token status in the database.
+ * revoking the token in the token store.
  */
 @Configuration
 public class CustomLogoutHandler implements LogoutHandler {
 
-    private final TokenRepository tokenRepository;
+    private final TokenStore tokenStore;
 
     /**
      * Constructor for CustomLogoutHandler.
      *
-     * @param tokenRepository the repository used to interact with tokens in the
-     *                        database.
+     * @param tokenStore the store holding the issued tokens.
      */
-    public CustomLogoutHandler(TokenRepository tokenRepository) {
-        this.tokenRepository = tokenRepository;
+    public CustomLogoutHandler(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
     }
 
     /**
@@ -43,8 +41,7 @@ public class CustomLogoutHandler implements LogoutHandler {
      * 
      *                       This method extracts the JWT token from the
      *                       "Authorization" header of the request,
-     *                       marks it as logged out in the database, and saves the
-     *                       updated token status.
+     *                       and revokes it in the token store.
      *                       The token is expected to be in the format "Bearer
      *                       <token>".
      */
@@ -63,13 +60,7 @@ public class CustomLogoutHandler implements LogoutHandler {
         // Extract the token from the header
         String token = authHeader.substring(7);
 
-        // Find the token in the database
-        Token storedToken = tokenRepository.findByAccessToken(token).orElse(null);
-
-        // If the token is found, mark it as logged out
-        if (storedToken != null) {
-            storedToken.setLoggedOut(true);
-            tokenRepository.save(storedToken);
-        }
+        // Revoke the token in the store and on every node
+        tokenStore.revoke(token);
     }
 }
\ No newline at end of file
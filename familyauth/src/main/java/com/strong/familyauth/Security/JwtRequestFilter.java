@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import com.strong.familyauth.Model.User;
+import com.strong.familyauth.Security.VerifiedTokenCache.VerifiedToken;
 import com.strong.familyauth.Service.UserService;
 import com.strong.familyauth.Util.JwtUtil;
 import com.strong.familyauth.Util.UserException;
@@ -66,11 +67,12 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             String jwt = authHeader.substring(7);
 
             try {
-                String id = jwtUtil.extractUserId(jwt);
+                VerifiedToken verified = jwtUtil.verifyAccessToken(jwt);
+                String id = verified.userId();
                 if (id != null && SecurityContextHolder.getContext().getAuthentication() == null) {
                     User userDetails = (User) userService.loadbyUserId(id);
 
-                    if (userDetails != null && jwtUtil.isTokenValid(jwt, userDetails)) {
+                    if (userDetails != null && jwtUtil.isTokenValid(verified, userDetails)) {
                         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                                 userDetails, null, userDetails.getAuthorities());
                         authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
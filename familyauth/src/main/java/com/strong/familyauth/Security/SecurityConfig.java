@@ -3,6 +3,7 @@ package com.strong.familyauth.Security;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -89,13 +90,15 @@ public class SecurityConfig {
     }
 
     /**
-     * Provides a PasswordEncoder bean using BCrypt hashing.
+     * Provides a PasswordEncoder bean using BCrypt hashing. Existing hashes
+     * keep verifying when the cost changes, as the cost is stored in the hash.
      * 
+     * @param cost the BCrypt log rounds for new hashes.
      * @return a BCryptPasswordEncoder instance.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.hash.bcryptCost:10}") int cost) {
+        return new BCryptPasswordEncoder(cost);
     }
 
     @Bean
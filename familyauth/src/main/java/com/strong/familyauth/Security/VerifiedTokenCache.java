@@ -0,0 +1,221 @@
+package com.strong.familyauth.Security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * VerifiedTokenCache remembers the outcome of verifying an access token so the
+ * JwtRequestFilter does not parse the JWT and query the token store on
+ * every request.
+ * Entries are keyed by the SHA-256 digest of the token and live until the
+ * token itself expires. Revocations are broadcast over Redis pub/sub so that
+ * every node drops its copy right away.
+ * <p>
+ * A revocation can land between a caller's token store check and its
+ * {@link #put}, when there is nothing to evict yet. Every revocation bumps
+ * {@link #generation()} before evicting, and a put made with a generation
+ * read before the store check is taken back if the generation has moved.
+ */
+@Component
+public class VerifiedTokenCache implements MessageListener {
+
+    public static final String REVOKE_CHANNEL = "auth:token-revoke";
+
+    private static final String TOKEN_PREFIX = "token:";
+    private static final String USER_PREFIX = "user:";
+
+    /**
+     * The parts of a verified access token the filter needs.
+     *
+     * @param userId    the "id" claim of the token.
+     * @param email     the subject of the token.
+     * @param expiresAt the expiry of the token in epoch milliseconds.
+     * @param loggedOut whether the token was logged out or no longer stored.
+     */
+    public record VerifiedToken(String userId, String email, long expiresAt, boolean loggedOut) {
+    }
+
+    private final Map<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter revocations;
+
+    @Value("${auth.tokenCache.maxEntries:100000}")
+    private int maxEntries;
+
+    public VerifiedTokenCache(StringRedisTemplate stringRedisTemplate,
+            RedisMessageListenerContainer listenerContainer, MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.hits = Counter.builder("auth.token.cache")
+                .tag("result", "hit")
+                .description("Access tokens answered from the verified-token cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("auth.token.cache")
+                .tag("result", "miss")
+                .description("Access tokens that needed a JWT parse and a token store lookup")
+                .register(meterRegistry);
+        this.revocations = Counter.builder("auth.token.cache.revocations")
+                .description("Revocation messages applied to the verified-token cache")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("auth.token.cache.size", Tags.empty(), entries);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(REVOKE_CHANNEL));
+    }
+
+    /**
+     * Looks up a previously verified token.
+     *
+     * @param token the raw JWT.
+     * @return the cached verification result, or null if the token is unknown or
+     *         has expired.
+     */
+    public VerifiedToken get(String token) {
+        String key = digest(token);
+        VerifiedToken cached = entries.get(key);
+
+        if (cached != null && cached.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, cached);
+            cached = null;
+        }
+
+        if (cached == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return cached;
+    }
+
+    /**
+     * @return the revocation generation, to be read before checking the token
+     *         store and handed to {@link #put}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the result of verifying a token until the token expires, unless a
+     * revocation was applied since {@code seenGeneration} was read.
+     *
+     * @param token          the raw JWT.
+     * @param claims         the verified claims of the token.
+     * @param loggedOut      whether the stored token is logged out or missing.
+     * @param seenGeneration the {@link #generation()} read before the token
+     *                       store was checked.
+     * @return the verification result.
+     */
+    public VerifiedToken put(String token, Claims claims, boolean loggedOut, long seenGeneration) {
+        VerifiedToken verified = new VerifiedToken(
+                claims.get("id", String.class),
+                claims.getSubject(),
+                claims.getExpiration().getTime(),
+                loggedOut);
+
+        if (entries.size() >= maxEntries) {
+            makeRoom();
+        }
+        String key = digest(token);
+        entries.put(key, verified);
+        if (generation.get() != seenGeneration) {
+            // The store check may predate the revocation; verify again next time
+            entries.remove(key, verified);
+        }
+        return verified;
+    }
+
+    /**
+     * Drops a single token on every node.
+     *
+     * @param token the raw JWT that was logged out or deleted.
+     */
+    public void revokeToken(String token) {
+        String key = digest(token);
+        generation.incrementAndGet();
+        entries.remove(key);
+        stringRedisTemplate.convertAndSend(REVOKE_CHANNEL, TOKEN_PREFIX + key);
+    }
+
+    /**
+     * Drops every token of a user on every node.
+     *
+     * @param userId the id of the user whose tokens were revoked.
+     */
+    public void revokeUser(String userId) {
+        evictUser(userId);
+        stringRedisTemplate.convertAndSend(REVOKE_CHANNEL, USER_PREFIX + userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+
+        if (body.startsWith(TOKEN_PREFIX)) {
+            generation.incrementAndGet();
+            entries.remove(body.substring(TOKEN_PREFIX.length()));
+        } else if (body.startsWith(USER_PREFIX)) {
+            evictUser(body.substring(USER_PREFIX.length()));
+        }
+        revocations.increment();
+    }
+
+    private void evictUser(String userId) {
+        generation.incrementAndGet();
+        entries.values().removeIf(verified -> userId.equals(verified.userId()));
+    }
+
+    /**
+     * Removes expired entries and, if the cache is still full, an arbitrary tenth
+     * of the remaining ones.
+     */
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(verified -> verified.expiresAt() <= now);
+        if (entries.size() < maxEntries) {
+            return;
+        }
+
+        int toRemove = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        Iterator<String> keys = entries.keySet().iterator();
+        while (toRemove-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.strong.familyauth.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.strong.familyauth.Util.BloomFilter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * AvailabilityFilter keeps Bloom filters of taken usernames and emails, so
+ * the availability checks on the signup screen can answer "available"
+ * without a Mongo lookup. A miss is definite; a hit only means the value may
+ * be taken and the caller still asks Mongo.
+ * <p>
+ * The filters are built on startup, fed by local signups and the
+ * user-create/user-update events, and rebuilt every
+ * {@code auth.availability.rebuildMs} so values freed by deletes and renames
+ * stop matching. Until the first build completes every lookup is a hit.
+ */
+@Component
+public class AvailabilityFilter {
+
+    public enum Field {
+        USERNAME, EMAIL
+    }
+
+    private record Filters(BloomFilter usernames, BloomFilter emails) {
+        BloomFilter of(Field field) {
+            return field == Field.USERNAME ? usernames : emails;
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${auth.availability.expectedUsers:100000}")
+    private long expectedUsers;
+
+    @Value("${auth.availability.falsePositiveRate:0.01}")
+    private double falsePositiveRate;
+
+    private final Map<Field, Counter> misses = new EnumMap<>(Field.class);
+    private final Map<Field, Counter> maybes = new EnumMap<>(Field.class);
+    private final Map<Field, Counter> falsePositives = new EnumMap<>(Field.class);
+    private volatile Filters current;
+    // Receives adds while a rebuild streams the users collection
+    private volatile Filters building;
+
+    public AvailabilityFilter(MeterRegistry meterRegistry) {
+        for (Field field : Field.values()) {
+            misses.put(field, lookups(meterRegistry, field, "miss"));
+            maybes.put(field, lookups(meterRegistry, field, "maybe"));
+            falsePositives.put(field, lookups(meterRegistry, field, "false_positive"));
+            Gauge.builder("auth.availability.filter.fpp", this, filter -> filter.expectedFalsePositiveRate(field))
+                    .tag("field", field.name().toLowerCase())
+                    .description("False-positive rate implied by the filter fill")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${auth.availability.rebuildMs:86400000}",
+            fixedDelayString = "${auth.availability.rebuildMs:86400000}")
+    public void rebuild() {
+        Filters next = new Filters(new BloomFilter(expectedUsers, falsePositiveRate),
+                new BloomFilter(expectedUsers, falsePositiveRate));
+        building = next;
+
+        Query query = new Query();
+        query.fields().include("username", "email");
+        try (var users = mongoTemplate.stream(query, Document.class, "users")) {
+            users.forEach(user -> {
+                next.usernames().add(user.getString("username"));
+                next.emails().add(user.getString("email"));
+            });
+        }
+
+        current = next;
+        building = null;
+    }
+
+    /**
+     * @return false if no user has the value; true if one may have it.
+     */
+    public boolean mightBeTaken(Field field, String value) {
+        Filters filters = current;
+        if (filters == null) {
+            return true;
+        }
+        boolean hit = filters.of(field).mightContain(value);
+        (hit ? maybes : misses).get(field).increment();
+        return hit;
+    }
+
+    /**
+     * Records that Mongo found no user for a value the filter matched.
+     */
+    public void recordFalsePositive(Field field) {
+        falsePositives.get(field).increment();
+    }
+
+    public void add(Field field, String value) {
+        // Check the rebuild first: if none is running yet, one that starts
+        // later streams this user from Mongo anyway
+        Filters next = building;
+        if (next != null) {
+            next.of(field).add(value);
+        }
+        Filters filters = current;
+        if (filters != null) {
+            filters.of(field).add(value);
+        }
+    }
+
+    private double expectedFalsePositiveRate(Field field) {
+        Filters filters = current;
+        return filters == null ? 1.0 : filters.of(field).expectedFalsePositiveRate();
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, Field field, String result) {
+        return Counter.builder("auth.availability.filter")
+                .tag("field", field.name().toLowerCase())
+                .tag("result", result)
+                .description("Availability checks by filter outcome; the observed false-positive rate is "
+                        + "false_positive / (false_positive + miss)")
+                .register(meterRegistry);
+    }
+}
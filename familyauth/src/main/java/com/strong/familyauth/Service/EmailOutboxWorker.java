@@ -0,0 +1,240 @@
+package com.strong.familyauth.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.strong.familyauth.Model.EmailOutbox;
+import com.strong.familyauth.Model.EmailOutbox.Status;
+import com.strong.familyauth.Repository.EmailOutboxRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * EmailOutboxWorker drains the email_outbox collection.
+ * <p>
+ * Every poll claims up to {@code auth.email.batchSize} due entries with
+ * findAndModify, so several nodes can drain the same outbox, and hands each
+ * batch to a bounded worker pool. A batch is sent with one
+ * {@link JavaMailSender#send(MimeMessage...)} call, which reuses one SMTP
+ * connection for the whole batch. Failed entries are retried with
+ * exponential backoff until {@code auth.email.maxAttempts}; entries left in
+ * SENDING by a crashed node are reclaimed after five minutes.
+ */
+@Service
+public class EmailOutboxWorker {
+
+    private static final Duration STUCK_AFTER = Duration.ofMinutes(5);
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Value("${auth.email.batchSize:20}")
+    private int batchSize;
+
+    @Value("${auth.email.maxAttempts:6}")
+    private int maxAttempts;
+
+    @Value("${auth.email.retryBaseMs:5000}")
+    private long retryBaseMs;
+
+    private final int workers;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong depth = new AtomicLong();
+    private final Timer sendDuration;
+    private final Timer deliveryLatency;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    public EmailOutboxWorker(MeterRegistry meterRegistry, @Value("${auth.email.workers:4}") int workers) {
+        this.workers = workers;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers), runnable -> {
+                    Thread thread = new Thread(runnable, "email-outbox-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        meterRegistry.gauge("auth.email.outbox.depth", depth);
+        this.sendDuration = Timer.builder("auth.email.send.duration")
+                .description("SMTP time per outbox batch")
+                .register(meterRegistry);
+        this.deliveryLatency = Timer.builder("auth.email.delivery.latency")
+                .description("Time from enqueue to accepted by the SMTP relay")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.sent = outcome(meterRegistry, "sent");
+        this.retried = outcome(meterRegistry, "retry");
+        this.failed = outcome(meterRegistry, "failed");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(EmailOutbox.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(EmailOutbox.class)
+                .forEach(indexOps::ensureIndex);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.email.pollMs:1000}")
+    public void drain() {
+        depth.set(outboxRepository.countByStatus(Status.PENDING));
+
+        while (executor.getActiveCount() + executor.getQueue().size() < workers) {
+            List<EmailOutbox> batch = claim();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                executor.execute(() -> send(batch));
+            } catch (RejectedExecutionException e) {
+                batch.forEach(entry -> release(entry, Instant.now()));
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private List<EmailOutbox> claim() {
+        Instant now = Instant.now();
+        Query due = Query.query(new Criteria().orOperator(
+                Criteria.where("status").is(Status.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(Status.SENDING).and("claimedAt").lte(now.minus(STUCK_AFTER))));
+        Update claim = new Update().set("status", Status.SENDING).set("claimedAt", now);
+
+        List<EmailOutbox> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            EmailOutbox entry = mongoTemplate.findAndModify(due, claim,
+                    FindAndModifyOptions.options().returnNew(true), EmailOutbox.class);
+            if (entry == null) {
+                break;
+            }
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    private void send(List<EmailOutbox> batch) {
+        Map<MimeMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox entry : batch) {
+            try {
+                MimeMessage message = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(message, true);
+                helper.setTo(entry.getTo());
+                helper.setSubject(entry.getSubject());
+                helper.setText(entry.getBody(), true);
+                messages.put(message, entry);
+            } catch (MessagingException e) {
+                retry(entry, e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        long started = System.nanoTime();
+        try {
+            mailSender.send(messages.keySet().toArray(MimeMessage[]::new));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+        } catch (MailException e) {
+            messages.values().forEach(entry -> retry(entry, e));
+            return;
+        } finally {
+            sendDuration.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+
+        Instant now = Instant.now();
+        for (Map.Entry<MimeMessage, EmailOutbox> message : messages.entrySet()) {
+            Exception failure = failures.get(message.getKey());
+            if (failure != null) {
+                retry(message.getValue(), failure);
+            } else {
+                markSent(message.getValue(), now);
+            }
+        }
+    }
+
+    private void markSent(EmailOutbox entry, Instant now) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(entry.getId())),
+                new Update().set("status", Status.SENT).set("sentAt", now).unset("body"),
+                EmailOutbox.class);
+        deliveryLatency.record(Duration.between(entry.getCreatedAt(), now));
+        sent.increment();
+    }
+
+    private void retry(EmailOutbox entry, Exception cause) {
+        int attempts = entry.getAttempts() + 1;
+        Update update = new Update().set("attempts", attempts).set("lastError", String.valueOf(cause.getMessage()));
+
+        if (attempts >= maxAttempts) {
+            update.set("status", Status.FAILED).set("failedAt", Instant.now()).unset("body");
+            failed.increment();
+        } else {
+            long backoff = Math.min(retryBaseMs << Math.min(attempts - 1, 20), MAX_BACKOFF.toMillis());
+            update.set("status", Status.PENDING).set("nextAttemptAt", Instant.now().plusMillis(backoff));
+            retried.increment();
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(entry.getId())), update, EmailOutbox.class);
+    }
+
+    private void release(EmailOutbox entry, Instant nextAttemptAt) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(entry.getId())),
+                new Update().set("status", Status.PENDING).set("nextAttemptAt", nextAttemptAt),
+                EmailOutbox.class);
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.email.outbox")
+                .tag("result", result)
+                .description("Outbox entries by send outcome")
+                .register(meterRegistry);
+    }
+}
@@ -1,36 +1,31 @@
 package com.strong.familyauth.Service;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.Optional;
-import java.util.Random;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.strong.familyauth.Model.OtpEntity;
-import com.strong.familyauth.Repository.OtpRepository;
+import com.strong.familyauth.Model.EmailOutbox;
+import com.strong.familyauth.Repository.EmailOutboxRepository;
 import com.strong.familyauth.Util.UserException;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
-
 @Service
 public class EmailService {
 
         @Autowired
-        private JavaMailSender mailSender;
+        private EmailOutboxRepository outboxRepository;
+
+        @Value("${auth.email.followRequestDedupHours:24}")
+        private long followRequestDedupHours;
 
         @Autowired
-        private OtpRepository otpRepository;
+        private OtpStore otpStore;
 
         public void sendOtpEmail(String to) throws UserException {
-                String otp = String.valueOf(100000 + new Random().nextInt(900000));
-                Instant expiryTime = Instant.now().plusSeconds(180);
-
-                OtpEntity otpEntity = new OtpEntity(to, otp, expiryTime);
-                otpRepository.save(otpEntity); // Save the updated OTP
+                String otp = otpStore.issue(to);
+                long validMinutes = Math.max(1, otpStore.getTtlSeconds() / 60);
 
                 String subject = "📩 Your FamilyGram OTP – Complete Your Signup!";
                 String body = "<html><body>"
@@ -38,7 +33,7 @@ public class EmailService {
                                 + "<p>Welcome to FamilyGram – where moments turn into memories! 🎉</p>"
                                 + "<p>To complete your signup, please use the following One-Time Password (OTP):</p>"
                                 + "<p><strong>🔑 Your OTP: " + otp + "</strong></p>"
-                                + "<p>This OTP is valid for <strong>3 minutes</strong>. Please do not share this code with anyone.</p>"
+                                + "<p>This OTP is valid for <strong>" + validMinutes + " minutes</strong>. Please do not share this code with anyone.</p>"
                                 + "<p>If you did not request this, please ignore this email.</p>"
                                 + "<p>We’re excited to have you on board! 🌟</p>"
                                 + "<p>Best Regards,</p>"
@@ -46,18 +41,7 @@ public class EmailService {
                                 + "<p>📧 sayeedajmala06@icloud.com</p>"
                                 + "</body></html>";
 
-                MimeMessage message = mailSender.createMimeMessage();
-                try {
-                        MimeMessageHelper helper = new MimeMessageHelper(message, true);
-                        helper.setTo(to);
-                        helper.setSubject(subject);
-                        helper.setText(body, true);
-
-                        // Send the email
-                        mailSender.send(message);
-                } catch (MessagingException e) {
-                        throw new UserException("Error sending OTP email", e);
-                }
+                enqueue(to, subject, body, null);
         }
 
         // send email for follow request
@@ -75,40 +59,32 @@ public class EmailService {
                                 + "<p>📧 sayeedajmala06@icloud.com</p>"
                                 + "</body></html>";
 
-                MimeMessage message = mailSender.createMimeMessage();
-                try {
-                        MimeMessageHelper helper = new MimeMessageHelper(message, true);
-                        helper.setTo(to);
-                        helper.setSubject(subject);
-                        helper.setText(body, true);
-
-                        // Send the email
-                        mailSender.send(message);
-                } catch (MessagingException e) {
-                        throw new UserException("Error sending follow request email", e);
+                // One email per requester and recipient within the dedup window
+                String dedupKey = "follow-request:" + to + ":" + from;
+                if (outboxRepository.existsByDedupKeyAndCreatedAtAfter(dedupKey,
+                                Instant.now().minus(Duration.ofHours(followRequestDedupHours)))) {
+                        return;
                 }
+                enqueue(to, subject, body, dedupKey);
         }
 
-        public boolean validateOtp(String email, String otp) {
-                Optional<OtpEntity> otpEntityOptional = otpRepository.findByEmail(email);
-
-                if (otpEntityOptional.isPresent()) {
-                        OtpEntity otpEntity = otpEntityOptional.get();
-
-                        // Check if OTP matches
-                        if (otpEntity.getOtp().equals(otp)) {
+        /**
+         * Queues an email for the EmailOutboxWorker and returns right away.
+         */
+        private void enqueue(String to, String subject, String body, String dedupKey) {
+                EmailOutbox entry = new EmailOutbox();
+                entry.setTo(to);
+                entry.setSubject(subject);
+                entry.setBody(body);
+                entry.setDedupKey(dedupKey);
+                entry.setStatus(EmailOutbox.Status.PENDING);
+                entry.setCreatedAt(Instant.now());
+                entry.setNextAttemptAt(entry.getCreatedAt());
+                outboxRepository.save(entry);
+        }
 
-                                // Check if OTP is expired
-                                if (otpEntity.getExpiryTime().isAfter(Instant.now())) {
-                                        otpRepository.delete(otpEntity); // OTP used, remove from DB
-                                        return true; // OTP is valid
-                                } else {
-                                        otpRepository.delete(otpEntity); // OTP expired, remove from DB
-                                        return false; // Expired OTP
-                                }
-                        }
-                }
-                return false; // OTP does not exist or incorrect
+        public boolean validateOtp(String email, String otp) {
+                return otpStore.verify(email, otp) == OtpStore.Result.VALID;
         }
 
 }
@@ -0,0 +1,157 @@
+package com.strong.familyauth.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.strong.familyauth.Model.LiteUser;
+
+/**
+ * FeedCandidateService picks the users shown to familyfeed without running an
+ * aggregation over the users collection.
+ * <p>
+ * Candidates come from two pools:
+ * <ul>
+ * <li>connections - the followers:{id} and following:{id} sorted sets kept by
+ * {@link FollowService}, sampled with ZRANDMEMBER.</li>
+ * <li>public - the Redis set feed:public_pool, a uniform reservoir sample of
+ * public users that one node refreshes every
+ * {@code feed.publicPoolRefreshMs}, sampled with SRANDMEMBER.</li>
+ * </ul>
+ * Profiles are resolved from the {@link UserSearchIndex}, so a draw costs
+ * O(limit).
+ */
+@Service
+public class FeedCandidateService {
+
+    private static final String PUBLIC_POOL_KEY = "feed:public_pool";
+    private static final String REFRESH_LOCK_KEY = "feed:public_pool:lock";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FollowService followService;
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Value("${feed.publicPoolSize:5000}")
+    private int publicPoolSize;
+
+    @Value("${feed.publicPoolRefreshMs:600000}")
+    private long refreshMs;
+
+    /**
+     * Picks up to limit users, connections first and then public users, never
+     * including the user themselves.
+     */
+    public List<LiteUser> sample(String mineId, int limit) {
+        List<LiteUser> result = new ArrayList<>(limit);
+        Set<String> seen = new HashSet<>();
+        seen.add(mineId);
+
+        addProfiles(followService.sampleConnections(mineId, limit), seen, result, limit);
+
+        if (result.size() < limit) {
+            // Over-draw to make up for ids already picked or no longer indexed
+            Set<String> publicIds = stringRedisTemplate.opsForSet()
+                    .distinctRandomMembers(PUBLIC_POOL_KEY, (long) (limit - result.size()) * 2 + 1);
+            if (publicIds != null) {
+                addProfiles(publicIds, seen, result, limit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Keeps the public pool in step with a privacy change until the next
+     * refresh.
+     */
+    public void onPrivacyChanged(String userId, boolean privacy) {
+        if (privacy) {
+            stringRedisTemplate.opsForSet().remove(PUBLIC_POOL_KEY, userId);
+            return;
+        }
+        Long size = stringRedisTemplate.opsForSet().size(PUBLIC_POOL_KEY);
+        if (size != null && size < publicPoolSize) {
+            stringRedisTemplate.opsForSet().add(PUBLIC_POOL_KEY, userId);
+        }
+    }
+
+    /**
+     * Rebuilds the public pool with a single pass reservoir sample over the
+     * public users. The lock lives for one refresh interval, so only one node
+     * refreshes per interval.
+     */
+    @Scheduled(fixedRateString = "${feed.publicPoolRefreshMs:600000}")
+    public void refreshPublicPool() {
+        Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(REFRESH_LOCK_KEY, "1", Duration.ofMillis(refreshMs));
+        if (!Boolean.TRUE.equals(acquired)) {
+            return;
+        }
+
+        Query query = Query.query(Criteria.where("privacy").is(false));
+        query.fields().include("_id");
+
+        List<String> reservoir = new ArrayList<>(publicPoolSize);
+        long seen = 0;
+        try (var users = mongoTemplate.stream(query, Document.class, "users")) {
+            for (var it = users.iterator(); it.hasNext();) {
+                String id = it.next().get("_id").toString();
+                seen++;
+                if (reservoir.size() < publicPoolSize) {
+                    reservoir.add(id);
+                } else {
+                    long slot = ThreadLocalRandom.current().nextLong(seen);
+                    if (slot < publicPoolSize) {
+                        reservoir.set((int) slot, id);
+                    }
+                }
+            }
+        }
+
+        if (reservoir.isEmpty()) {
+            stringRedisTemplate.delete(PUBLIC_POOL_KEY);
+            return;
+        }
+
+        // Build aside and swap, so readers never see a half-filled pool
+        String staging = PUBLIC_POOL_KEY + ":staging";
+        stringRedisTemplate.delete(staging);
+        stringRedisTemplate.opsForSet().add(staging, reservoir.toArray(String[]::new));
+        stringRedisTemplate.rename(staging, PUBLIC_POOL_KEY);
+    }
+
+    private void addProfiles(Iterable<String> ids, Set<String> seen, List<LiteUser> result, int limit) {
+        for (String id : ids) {
+            if (result.size() >= limit) {
+                return;
+            }
+            if (!seen.add(id)) {
+                continue;
+            }
+            LiteUser user = searchIndex.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.strong.familyauth.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import com.strong.familyauth.Model.Follow;
+import com.strong.familyauth.Model.Follow.Status;
+import com.strong.familyauth.Model.Relationship;
+import com.strong.familyauth.Repository.FollowRepository;
+
+/**
+ * FollowService owns the follow graph. Every follow and follow request is an
+ * edge in the Mongo "follows" collection, mirrored to Redis sorted sets scored
+ * by creation time:
+ * <ul>
+ * <li>followers:{userId} - ids following the user</li>
+ * <li>following:{userId} - ids the user follows</li>
+ * <li>follow_requests:{userId} - ids waiting for the user to accept</li>
+ * </ul>
+ * A sorted set is loaded from Mongo the first time it is paged and is then
+ * kept current on every write, so membership checks and counts never load a
+ * whole follower set.
+ */
+@Service
+public class FollowService {
+
+    private static final String FOLLOWERS_KEY = "followers:";
+    private static final String FOLLOWING_KEY = "following:";
+    private static final String REQUESTS_KEY = "follow_requests:";
+    private static final int BATCH_SIZE = 1000;
+    private static final int WARM_ATTEMPTS = 3;
+    private static final Duration LOADING_TTL = Duration.ofMinutes(10);
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "_id");
+    // Replaced by the indexes ending in _id, which keyset paging sorts on
+    // Only add to a sorted set that is already loaded, a partial set must never
+    // look complete
+    private static final RedisScript<Long> ZADD_IF_LOADED = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then "
+                    + "return redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) end "
+                    + "return 0",
+            Long.class);
+
+    @Autowired
+    private FollowRepository followRepo;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    public boolean isRequested(String requesterId, String targetId) {
+        return isMember(REQUESTS_KEY + targetId, requesterId,
+                () -> followRepo.existsByFollowerIdAndFollowingIdAndStatus(requesterId, targetId, Status.REQUESTED));
+    }
+
+    /**
+     * Resolves following, followed-by and request-pending between one viewer
+     * and many targets. The viewer's followers and following sets are loaded
+     * once and every check is a ZSCORE in a single pipeline; only targets whose
+     * request set is not in Redis fall back to one Mongo query.
+     *
+     * @return one relationship per distinct target, privacy and access unset.
+     */
+    public Map<String, Relationship> relationships(String viewerId, Collection<String> targetIds) {
+        List<String> targets = new ArrayList<>(new LinkedHashSet<>(targetIds));
+        String followingKey = FOLLOWING_KEY + viewerId;
+        String followersKey = FOLLOWERS_KEY + viewerId;
+        ensureLoaded(followingOf(viewerId));
+        ensureLoaded(followersOf(viewerId));
+
+        List<Object> replies = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            public Object execute(RedisOperations operations) {
+                for (String target : targets) {
+                    operations.opsForZSet().score(followingKey, target);
+                    operations.opsForZSet().score(followersKey, target);
+                    operations.opsForZSet().score(REQUESTS_KEY + target, viewerId);
+                    operations.hasKey(REQUESTS_KEY + target);
+                }
+                return null;
+            }
+        });
+
+        Map<String, Relationship> result = new LinkedHashMap<>();
+        List<String> unloadedRequests = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            Relationship relationship = new Relationship();
+            relationship.setUserId(targets.get(i));
+            relationship.setFollowing(replies.get(i * 4) != null);
+            relationship.setFollowedBy(replies.get(i * 4 + 1) != null);
+            relationship.setRequested(replies.get(i * 4 + 2) != null);
+            if (!relationship.isRequested() && !Boolean.TRUE.equals(replies.get(i * 4 + 3))) {
+                unloadedRequests.add(relationship.getUserId());
+            }
+            result.put(relationship.getUserId(), relationship);
+        }
+
+        if (!unloadedRequests.isEmpty()) {
+            followRepo.findByFollowerIdAndFollowingIdInAndStatus(viewerId, unloadedRequests, Status.REQUESTED)
+                    .forEach(edge -> result.get(edge.getFollowingId()).setRequested(true));
+        }
+        return result;
+    }
+
+    /**
+     * Makes followerId follow followingId, turning a pending request into a
+     * follow if there is one.
+     *
+     * @return false if the follow already existed.
+     */
+    public boolean follow(String followerId, String followingId) {
+        Follow edge = followRepo.findByFollowerIdAndFollowingId(followerId, followingId).orElse(null);
+        if (edge != null && edge.getStatus() == Status.ACCEPTED) {
+            return false;
+        }
+
+        if (edge == null) {
+            edge = new Follow(null, followerId, followingId, Status.ACCEPTED, Instant.now());
+        } else {
+            edge.setStatus(Status.ACCEPTED);
+            edge.setCreatedAt(Instant.now());
+            stringRedisTemplate.opsForZSet().remove(REQUESTS_KEY + followingId, followerId);
+        }
+        followRepo.save(edge);
+
+        double score = edge.getCreatedAt().toEpochMilli();
+        addIfLoaded(FOLLOWERS_KEY + followingId, followerId, score);
+        addIfLoaded(FOLLOWING_KEY + followerId, followingId, score);
+        return true;
+    }
+
+    /**
+     * @return false if followerId was not following followingId.
+     */
+    public boolean unfollow(String followerId, String followingId) {
+        Follow edge = followRepo.findByFollowerIdAndFollowingId(followerId, followingId).orElse(null);
+        if (edge == null || edge.getStatus() != Status.ACCEPTED) {
+            return false;
+        }
+
+        followRepo.delete(edge);
+        stringRedisTemplate.opsForZSet().remove(FOLLOWERS_KEY + followingId, followerId);
+        stringRedisTemplate.opsForZSet().remove(FOLLOWING_KEY + followerId, followingId);
+        return true;
+    }
+
+    /**
+     * @return false if a request or follow already existed.
+     */
+    public boolean request(String requesterId, String targetId) {
+        if (followRepo.findByFollowerIdAndFollowingId(requesterId, targetId).isPresent()) {
+            return false;
+        }
+
+        Follow edge = followRepo.save(new Follow(null, requesterId, targetId, Status.REQUESTED, Instant.now()));
+        addIfLoaded(REQUESTS_KEY + targetId, requesterId, edge.getCreatedAt().toEpochMilli());
+        return true;
+    }
+
+    /**
+     * Cancels or rejects a pending follow request.
+     *
+     * @return false if there was no pending request.
+     */
+    public boolean removeRequest(String requesterId, String targetId) {
+        Follow edge = followRepo.findByFollowerIdAndFollowingId(requesterId, targetId).orElse(null);
+        if (edge == null || edge.getStatus() != Status.REQUESTED) {
+            return false;
+        }
+
+        followRepo.delete(edge);
+        stringRedisTemplate.opsForZSet().remove(REQUESTS_KEY + targetId, requesterId);
+        return true;
+    }
+
+    /**
+     * Accepts a pending follow request.
+     *
+     * @return false if there was no pending request.
+     */
+    public boolean accept(String requesterId, String targetId) {
+        if (!isRequested(requesterId, targetId)) {
+            return false;
+        }
+        return follow(requesterId, targetId);
+    }
+
+    /**
+     * Removes up to limit edges of a deleted user, in either direction, and
+     * takes the user out of the sorted sets on the other end of each edge.
+     *
+     * @return the number of edges removed, fewer than limit once none are left.
+     */
+    public int purgeEdges(String userId, int limit) {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("followerId").is(userId),
+                Criteria.where("followingId").is(userId))).limit(limit);
+        List<Follow> edges = mongoTemplate.find(query, Follow.class);
+        if (edges.isEmpty()) {
+            return 0;
+        }
+
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            public Object execute(RedisOperations operations) {
+                for (Follow edge : edges) {
+                    if (userId.equals(edge.getFollowerId())) {
+                        String key = edge.getStatus() == Status.ACCEPTED ? FOLLOWERS_KEY : REQUESTS_KEY;
+                        operations.opsForZSet().remove(key + edge.getFollowingId(), userId);
+                    } else if (edge.getStatus() == Status.ACCEPTED) {
+                        operations.opsForZSet().remove(FOLLOWING_KEY + edge.getFollowerId(), userId);
+                    }
+                }
+                return null;
+            }
+        });
+
+        List<String> ids = edges.stream().map(Follow::getId).toList();
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Follow.class);
+        return edges.size();
+    }
+
+    /**
+     * Drops the sorted sets of a deleted user.
+     */
+    public void dropKeys(String userId) {
+        stringRedisTemplate.unlink(List.of(FOLLOWERS_KEY + userId, FOLLOWING_KEY + userId, REQUESTS_KEY + userId));
+    }
+
+    public List<String> getFollowers(String userId, int page, int size) {
+        return page(followersOf(userId), page, size);
+    }
+
+    public List<String> getFollowing(String userId, int page, int size) {
+        return page(followingOf(userId), page, size);
+    }
+
+    public List<String> getFollowRequests(String userId, int page, int size) {
+        return page(requestsOf(userId), page, size);
+    }
+
+    /**
+     * Draws up to count random ids from the users this user follows or is
+     * followed by, without loading either set.
+     */
+    public List<String> sampleConnections(String userId, int count) {
+        String followersKey = FOLLOWERS_KEY + userId;
+        String followingKey = FOLLOWING_KEY + userId;
+        ensureLoaded(followersOf(userId));
+        ensureLoaded(followingOf(userId));
+
+        Set<String> ids = new HashSet<>();
+        Set<String> followers = stringRedisTemplate.opsForZSet().distinctRandomMembers(followersKey, count);
+        Set<String> following = stringRedisTemplate.opsForZSet().distinctRandomMembers(followingKey, count);
+        if (followers != null) {
+            ids.addAll(followers);
+        }
+        if (following != null) {
+            ids.addAll(following);
+        }
+
+        List<String> sample = new ArrayList<>(ids);
+        Collections.shuffle(sample);
+        return sample.size() > count ? sample.subList(0, count) : sample;
+    }
+
+    public long countFollowers(String userId) {
+        return count(FOLLOWERS_KEY + userId,
+                () -> followRepo.countByFollowingIdAndStatus(userId, Status.ACCEPTED));
+    }
+
+    public long countFollowing(String userId) {
+        return count(FOLLOWING_KEY + userId,
+                () -> followRepo.countByFollowerIdAndStatus(userId, Status.ACCEPTED));
+    }
+
+    public long countFollowRequests(String userId) {
+        return count(REQUESTS_KEY + userId,
+                () -> followRepo.countByFollowingIdAndStatus(userId, Status.REQUESTED));
+    }
+
+    /**
+     * Creates the follows indexes and, the first time the service starts with an
+     * empty follows collection, copies the edges out of the embedded
+     * followers/followRequests sets on users and then drops the embedded sets.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initFollowGraph() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Follow.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Follow.class)
+                .forEach(indexOps::ensureIndex);
+
+        if (followRepo.count() > 0) {
+            return;
+        }
+
+        Query query = new Query();
+        query.fields().include("followers", "followRequests");
+
+        List<Follow> batch = new ArrayList<>();
+        Instant now = Instant.now();
+        try (var users = mongoTemplate.stream(query, Document.class, "users")) {
+            users.forEach(user -> {
+                String userId = user.get("_id").toString();
+                for (String followerId : idsOf(user.get("followers"))) {
+                    batch.add(new Follow(null, followerId, userId, Status.ACCEPTED, now));
+                }
+                for (String requesterId : idsOf(user.get("followRequests"))) {
+                    batch.add(new Follow(null, requesterId, userId, Status.REQUESTED, now));
+                }
+                if (batch.size() >= BATCH_SIZE) {
+                    insertEdges(batch);
+                }
+            });
+        }
+        insertEdges(batch);
+        mongoTemplate.updateMulti(new Query(),
+                new Update().unset("followers").unset("following").unset("followRequests"), "users");
+    }
+
+    private void insertEdges(List<Follow> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Follow.class).insert(batch).execute();
+        batch.clear();
+    }
+
+    private static Collection<String> idsOf(Object embedded) {
+        Set<String> ids = new HashSet<>();
+        if (embedded instanceof Collection<?> values) {
+            values.forEach(value -> ids.add(value.toString()));
+        }
+        return ids;
+    }
+
+    private boolean isMember(String key, String member, BooleanSupplier fallback) {
+        if (stringRedisTemplate.opsForZSet().score(key, member) != null) {
+            return true;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            return false;
+        }
+        return fallback.getAsBoolean();
+    }
+
+    private long count(String key, LongSupplier fallback) {
+        Long card = stringRedisTemplate.opsForZSet().zCard(key);
+        if (card != null && card > 0) {
+            return card;
+        }
+        return fallback.getAsLong();
+    }
+
+    private void addIfLoaded(String key, String member, double score) {
+        stringRedisTemplate.execute(ZADD_IF_LOADED, List.of(key), String.valueOf(score), member);
+    }
+
+    private List<String> page(Side side, int page, int size) {
+        ensureLoaded(side);
+
+        long start = (long) page * size;
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(side.key(), start, start + size - 1);
+        if (ids != null && !ids.isEmpty()) {
+            return new ArrayList<>(ids);
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(side.key()))) {
+            return List.of();
+        }
+
+        // Nothing to mirror, the user has no edges on this side
+        Query query = Query.query(side.criteria()).with(NEWEST_FIRST).skip(start).limit(size);
+        return mongoTemplate.find(query, Follow.class).stream().map(side.member()).toList();
+    }
+
+    private void ensureLoaded(Side side) {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(side.key()))) {
+            warm(side);
+        }
+    }
+
+    /**
+     * Loads one side of a user's edges into its sorted set. The set is built
+     * under a temporary key and renamed into place, so no reader ever sees a
+     * partial set, and Mongo is paged by (createdAt, _id) so edges sharing a
+     * timestamp or removed mid-load never shift a page.
+     * <p>
+     * Writes made while the set was being built did not reach it, because
+     * {@link #ZADD_IF_LOADED} skips missing keys. Edges created since the load
+     * started are added afterwards; if the count still disagrees with Mongo
+     * the load is retried, and the set dropped if it never settles, so the
+     * callers keep falling back to Mongo.
+     */
+    private void warm(Side side) {
+        for (int attempt = 0; attempt < WARM_ATTEMPTS; attempt++) {
+            Instant started = Instant.now();
+            if (!build(side)) {
+                return; // No edges on this side, nothing to mirror
+            }
+
+            Query since = Query.query(side.criteria().and("createdAt").gte(started));
+            addAll(side.key(), side, mongoTemplate.find(since, Follow.class));
+
+            Long card = stringRedisTemplate.opsForZSet().zCard(side.key());
+            if (card != null && card == mongoTemplate.count(Query.query(side.criteria()), Follow.class)) {
+                return;
+            }
+            stringRedisTemplate.unlink(side.key());
+        }
+    }
+
+    /**
+     * @return false if the side has no edges, leaving the key absent.
+     */
+    private boolean build(Side side) {
+        String loadingKey = side.key() + ":loading:" + UUID.randomUUID();
+        Follow last = null;
+        while (true) {
+            Criteria criteria = side.criteria();
+            if (last != null) {
+                criteria = criteria.orOperator(
+                        Criteria.where("createdAt").lt(last.getCreatedAt()),
+                        Criteria.where("createdAt").is(last.getCreatedAt())
+                                .and("_id").lt(new ObjectId(last.getId())));
+            }
+            List<Follow> edges = mongoTemplate.find(
+                    Query.query(criteria).with(NEWEST_FIRST).limit(BATCH_SIZE), Follow.class);
+            if (edges.isEmpty()) {
+                break;
+            }
+
+            addAll(loadingKey, side, edges);
+            if (last == null) {
+                // Left behind by a crashed load otherwise
+                stringRedisTemplate.expire(loadingKey, LOADING_TTL);
+            }
+            last = edges.get(edges.size() - 1);
+            if (edges.size() < BATCH_SIZE) {
+                break;
+            }
+        }
+
+        if (last == null) {
+            return false;
+        }
+        stringRedisTemplate.rename(loadingKey, side.key());
+        stringRedisTemplate.persist(side.key());
+        return true;
+    }
+
+    private void addAll(String key, Side side, List<Follow> edges) {
+        if (edges.isEmpty()) {
+            return;
+        }
+        Set<TypedTuple<String>> tuples = new HashSet<>();
+        for (Follow edge : edges) {
+            tuples.add(TypedTuple.of(side.member().apply(edge), (double) edge.getCreatedAt().toEpochMilli()));
+        }
+        stringRedisTemplate.opsForZSet().add(key, tuples);
+    }
+
+    private static Side followersOf(String userId) {
+        return new Side(FOLLOWERS_KEY + userId, "followingId", userId, Status.ACCEPTED, Follow::getFollowerId);
+    }
+
+    private static Side followingOf(String userId) {
+        return new Side(FOLLOWING_KEY + userId, "followerId", userId, Status.ACCEPTED, Follow::getFollowingId);
+    }
+
+    private static Side requestsOf(String userId) {
+        return new Side(REQUESTS_KEY + userId, "followingId", userId, Status.REQUESTED, Follow::getFollowerId);
+    }
+
+    /**
+     * One side of a user's edges and the sorted set mirroring it.
+     *
+     * @param userField the edge field holding the user, followingId or followerId.
+     * @param member    the id on the other end of an edge.
+     */
+    private record Side(String key, String userField, String userId, Status status,
+            Function<Follow, String> member) {
+
+        Criteria criteria() {
+            return Criteria.where(userField).is(userId).and("status").is(status);
+        }
+    }
+}
@@ -1,103 +1,342 @@
 package com.strong.familyauth.Service;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
 
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.mongodb.MongoGridFSException;
 import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.mongodb.client.gridfs.GridFSUploadStream;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 import com.strong.familyauth.Util.UserException;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * ImageStorageService stores profile images in GridFS.
+ * <p>
+ * Uploads are decoded with subsampling, so a large photo is never held at
+ * full resolution: the reader skips source pixels and produces at most
+ * {@code auth.image.maxDimension} pixels on the long side, which is the
+ * stored photo. The thumbnail and the {@code auth.image.sizes} size variants
+ * are scaled from that raster, and all of them are JPEG-encoded straight into
+ * GridFS upload streams. Decoding runs on a bounded worker pool so a burst of
+ * uploads cannot take the heap with it.
+ * <p>
+ * Size variants are stored as {@code {photo name}_{size}.jpg} next to the
+ * photo, so {@link #getImage(String, Integer)} finds them from the photo id
+ * and users only carry the photo and thumbnail ids.
+ */
 @Service
 public class ImageStorageService {
+
+    private static final String JPEG = "image/jpeg";
+
     @Autowired
     private GridFSBucket gridFSBucket;
 
-    public Map<String, String> uploadProfileImage(MultipartFile file, String id, MultipartFile thumbnail)
-            throws UserException {
+    @Value("${auth.image.maxDimension:1080}")
+    private int maxDimension;
+
+    @Value("${auth.image.thumbnailDimension:150}")
+    private int thumbnailDimension;
+
+    @Value("${auth.image.sizes:320,640}")
+    private int[] sizes;
+
+    @Value("${auth.image.maxPixels:50000000}")
+    private long maxPixels;
+
+    @Value("${auth.image.quality:0.85}")
+    private float quality;
+
+    @Value("${auth.image.workers:2}")
+    private int workers;
+
+    @Value("${auth.image.queueSize:8}")
+    private int queueSize;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "image-worker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stores a new profile photo and a server-generated thumbnail, then removes
+     * the previous ones.
+     *
+     * @return mediaId and thumbnailId of the stored images.
+     */
+    public Map<String, String> uploadProfileImage(MultipartFile file, String id) throws UserException {
+        Future<Map<String, String>> upload;
         try {
-            // First, try to find and delete existing image for the username
-            GridFSFile existingFile = gridFSBucket
-                    .find(new org.bson.Document("filename", new org.bson.Document("$regex", "^" + id + "_")))
-                    .first();
+            upload = executor.submit(() -> storeVariants(file, id));
+        } catch (RejectedExecutionException e) {
+            throw new UserException("Too many image uploads in progress. Please try again shortly.",
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        }
 
-            if (existingFile != null) {
-                gridFSBucket.delete(existingFile.getObjectId());
+        try {
+            return upload.get();
+        } catch (InterruptedException e) {
+            upload.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UserException("Interrupted while storing the image", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UserException userException) {
+                throw userException;
             }
+            throw new UserException(e.getCause().getLocalizedMessage());
+        }
+    }
 
-            // Upload the main profile image
-            String profileImageId = uploadImage(file, id);
+    private Map<String, String> storeVariants(MultipartFile file, String id) throws IOException, UserException {
+        // Earlier uploads, removed once the new ones are stored
+        List<ObjectId> previous = new ArrayList<>();
+        gridFSBucket.find(new Document("filename", new Document("$regex", "^" + id + "_")))
+                .forEach(existing -> previous.add(existing.getObjectId()));
 
-            // Upload the thumbnail
-            String thumbnailId = uploadImage(thumbnail, id);
+        BufferedImage photo = decode(file, maxDimension);
+        String baseName = id + "_" + System.currentTimeMillis();
 
-            // Return both media and thumbnail IDs in a Map
-            Map<String, String> result = new HashMap<>();
-            result.put("mediaId", profileImageId);
-            result.put("thumbnailId", thumbnailId);
+        String profileImageId = store(photo, baseName + ".jpg", "photo");
+        String thumbnailId = store(scale(photo, thumbnailDimension), baseName + "_thumb.jpg", "thumbnail");
+        int longSide = Math.max(photo.getWidth(), photo.getHeight());
+        for (int size : sizes) {
+            // A variant as large as the photo would just be a copy of it
+            if (size > thumbnailDimension && size < longSide) {
+                store(scale(photo, size), baseName + "_" + size + ".jpg", "w" + size);
+            }
+        }
 
-            return result;
-        } catch (Exception e) {
-            throw new UserException(e.getLocalizedMessage());
+        for (ObjectId old : previous) {
+            try {
+                gridFSBucket.delete(old);
+            } catch (MongoGridFSException e) {
+                // already gone
+            }
         }
+
+        Map<String, String> result = new HashMap<>();
+        result.put("mediaId", profileImageId);
+        result.put("thumbnailId", thumbnailId);
+        return result;
     }
 
-    private String uploadImage(MultipartFile file, String id) throws IOException {
-        // Convert image to JPEG
-        BufferedImage originalImage = ImageIO.read(file.getInputStream());
-        BufferedImage jpegImage = new BufferedImage(
-                originalImage.getWidth(),
-                originalImage.getHeight(),
-                BufferedImage.TYPE_INT_RGB);
-        jpegImage.createGraphics().drawImage(originalImage, 0, 0, null);
+    /**
+     * Decodes an image with the smallest subsampling that brings its long side
+     * within maxSide, into an RGB raster ready for the JPEG writer.
+     */
+    private BufferedImage decode(MultipartFile file, int maxSide) throws IOException, UserException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.getInputStream())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new UserException("Unsupported image format", HttpStatus.BAD_REQUEST);
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new UserException("Image is too large", HttpStatus.BAD_REQUEST);
+                }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(jpegImage, "jpg", baos);
-        InputStream inputStream = new ByteArrayInputStream(baos.toByteArray());
+                int longSide = Math.max(width, height);
+                int step = Math.max(1, (longSide + maxSide - 1) / maxSide);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
 
-        // Generate a unique file name
-        String fileName = id + "_" + System.currentTimeMillis() + ".jpg";
+                // Decode straight into RGB when the reader offers it
+                for (Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0); types.hasNext();) {
+                    ImageTypeSpecifier type = types.next();
+                    if (type.getBufferedImageType() == BufferedImage.TYPE_INT_RGB
+                            || type.getBufferedImageType() == BufferedImage.TYPE_3BYTE_BGR) {
+                        param.setDestinationType(type);
+                        break;
+                    }
+                }
 
-        // Upload the image
+                return toRgb(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private String store(BufferedImage image, String fileName, String variant) throws IOException {
         GridFSUploadOptions options = new GridFSUploadOptions()
-                .chunkSizeBytes(1024 * 1024)
-                .metadata(new org.bson.Document("type", "image/jpeg"));
-        ObjectId fileId = gridFSBucket.uploadFromStream(fileName, inputStream, options);
+                .chunkSizeBytes(256 * 1024)
+                .metadata(new Document("type", JPEG)
+                        .append("variant", variant)
+                        .append("width", image.getWidth())
+                        .append("height", image.getHeight()));
 
-        // Return the fileId as a hex string
-        return fileId.toHexString();
+        ImageWriter writer = ImageIO.getImageWritersByMIMEType(JPEG).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        GridFSUploadStream upload = gridFSBucket.openUploadStream(fileName, options);
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(upload)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            upload.abort();
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        upload.close();
+        return upload.getObjectId().toHexString();
     }
 
-    public InputStreamResource getImageStream(String fileId) throws UserException {
-        try {
-            GridFSDownloadStream downloadStream = gridFSBucket.openDownloadStream(new ObjectId(fileId));
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            int read;
-            while ((read = downloadStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, read);
+    private static BufferedImage scale(BufferedImage source, int maxSide) {
+        int longSide = Math.max(source.getWidth(), source.getHeight());
+        if (longSide <= maxSide) {
+            return source;
+        }
+
+        int width = Math.max(1, source.getWidth() * maxSide / longSide);
+        int height = Math.max(1, source.getHeight() * maxSide / longSide);
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    // Flattens alpha and palette images onto white, as JPEG has no alpha
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return rgb;
+    }
+
+    /**
+     * Looks up a stored image without reading it. The returned resource opens
+     * a fresh GridFS download stream per read, so the response can stream it
+     * and serve byte ranges by skipping whole chunks.
+     *
+     * @param size the long side the client will display a photo at, or null
+     *             for the photo itself. The smallest stored variant at least
+     *             that large is returned, or the photo if there is none.
+     * @return the image, or null if there is no such file.
+     */
+    public ImageResource getImage(String fileId, Integer size) {
+        if (!ObjectId.isValid(fileId)) {
+            return null;
+        }
+
+        GridFSFile file = gridFSBucket.find(new Document("_id", new ObjectId(fileId))).first();
+        if (file == null) {
+            return null;
+        }
+        if (size != null && file.getMetadata() != null && "photo".equals(file.getMetadata().getString("variant"))) {
+            GridFSFile variant = findVariant(file, size);
+            if (variant != null) {
+                file = variant;
             }
+        }
+        return new ImageResource(gridFSBucket, file);
+    }
 
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            return new InputStreamResource(inputStream);
-        } catch (Exception e) {
-            throw new UserException(e.getLocalizedMessage());
+    private GridFSFile findVariant(GridFSFile photo, int size) {
+        String baseName = photo.getFilename().substring(0, photo.getFilename().length() - ".jpg".length());
+        // Smallest first; variants larger than the photo were never stored
+        List<String> names = Arrays.stream(sizes).filter(variant -> variant >= size).sorted()
+                .mapToObj(variant -> baseName + "_" + variant + ".jpg").toList();
+        if (names.isEmpty()) {
+            return null;
         }
+
+        Map<String, GridFSFile> stored = new HashMap<>();
+        gridFSBucket.find(new Document("filename", new Document("$in", names)))
+                .forEach(variant -> stored.put(variant.getFilename(), variant));
+        return names.stream().map(stored::get).filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    /**
+     * Deletes up to limit of the stored images of a user.
+     *
+     * @return the number of files deleted, fewer than limit once none are left.
+     */
+    public int deleteImagesOf(String userId, int limit) {
+        List<ObjectId> files = new ArrayList<>();
+        gridFSBucket.find(new Document("filename", new Document("$regex", "^" + userId + "_")))
+                .limit(limit)
+                .forEach(file -> files.add(file.getObjectId()));
+
+        for (ObjectId file : files) {
+            try {
+                gridFSBucket.delete(file);
+            } catch (MongoGridFSException e) {
+                // already gone
+            }
+        }
+        return files.size();
     }
 
     public void deleteImage(String fileId) throws UserException {
@@ -108,4 +347,40 @@ public class ImageStorageService {
         }
     }
 
-}
\ No newline at end of file
+    public static final class ImageResource extends AbstractResource {
+
+        private final GridFSBucket bucket;
+        private final GridFSFile file;
+
+        ImageResource(GridFSBucket bucket, GridFSFile file) {
+            this.bucket = bucket;
+            this.file = file;
+        }
+
+        public String getContentType() {
+            Document metadata = file.getMetadata();
+            String type = metadata == null ? null : metadata.getString("type");
+            return type == null ? JPEG : type;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return bucket.openDownloadStream(file.getObjectId());
+        }
+
+        @Override
+        public long contentLength() {
+            return file.getLength();
+        }
+
+        @Override
+        public long lastModified() {
+            return file.getUploadDate().getTime();
+        }
+
+        @Override
+        public String getDescription() {
+            return "GridFS file [" + file.getObjectId().toHexString() + "]";
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.strong.familyauth.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.strong.familyauth.Model.LiteUser;
+import com.strong.familyauth.Util.UserException;
+
+/**
+ * LiteUserLoader resolves lite profiles for lists of users. Ids are answered
+ * from the {@link UserSearchIndex}; the misses are fetched with a single $in
+ * projection. Concurrent lookups of the same missing id share one in-flight
+ * fetch, so a burst of requests for a popular author costs one query.
+ */
+@Service
+public class LiteUserLoader {
+
+    public static final int MAX_BATCH = 500;
+
+    private static final long FETCH_TIMEOUT_MS = 5000;
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, CompletableFuture<LiteUser>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the lite profiles of the given users.
+     *
+     * @param userIds up to {@link #MAX_BATCH} ids.
+     * @return the profiles in request order; unknown ids are left out.
+     */
+    public List<LiteUser> load(List<String> userIds) throws UserException {
+        if (userIds.size() > MAX_BATCH) {
+            throw new UserException("At most " + MAX_BATCH + " ids per request", HttpStatus.BAD_REQUEST);
+        }
+
+        LinkedHashSet<String> ids = new LinkedHashSet<>(userIds);
+        Map<String, LiteUser> found = new HashMap<>();
+        Map<String, CompletableFuture<LiteUser>> waiting = new HashMap<>();
+        Map<String, CompletableFuture<LiteUser>> owned = new HashMap<>();
+
+        for (String id : ids) {
+            LiteUser user = searchIndex.get(id);
+            if (user != null) {
+                found.put(id, user);
+                continue;
+            }
+
+            CompletableFuture<LiteUser> mine = new CompletableFuture<>();
+            CompletableFuture<LiteUser> existing = inFlight.putIfAbsent(id, mine);
+            if (existing == null) {
+                owned.put(id, mine);
+                waiting.put(id, mine);
+            } else {
+                waiting.put(id, existing);
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            fetch(owned);
+        }
+
+        for (Map.Entry<String, CompletableFuture<LiteUser>> entry : waiting.entrySet()) {
+            try {
+                LiteUser user = entry.getValue().get(FETCH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (user != null) {
+                    found.put(entry.getKey(), user);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UserException("Interrupted while loading users", HttpStatus.SERVICE_UNAVAILABLE);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new UserException("Could not load users", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        }
+
+        List<LiteUser> result = new ArrayList<>(found.size());
+        for (String id : ids) {
+            LiteUser user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private void fetch(Map<String, CompletableFuture<LiteUser>> owned) {
+        try {
+            Query query = Query.query(Criteria.where("_id").in(owned.keySet()));
+            query.fields().include("username", "name", "thumbnailId");
+
+            Map<String, LiteUser> fetched = new HashMap<>();
+            for (Document doc : mongoTemplate.find(query, Document.class, "users")) {
+                LiteUser user = new LiteUser();
+                user.setId(doc.get("_id").toString());
+                user.setUsername(doc.getString("username"));
+                user.setName(doc.getString("name"));
+                user.setThumbnailId(doc.getString("thumbnailId"));
+                searchIndex.put(user);
+                fetched.put(user.getId(), user);
+            }
+
+            owned.forEach((id, future) -> future.complete(fetched.get(id)));
+        } catch (RuntimeException e) {
+            owned.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+    }
+}
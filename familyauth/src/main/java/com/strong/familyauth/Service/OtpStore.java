@@ -0,0 +1,107 @@
+package com.strong.familyauth.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+/**
+ * OtpStore keeps signup OTPs in Redis under otp:{email} as a hash of the
+ * SHA-256 of the code and the number of failed attempts. The key carries the
+ * OTP validity as its TTL, so expired codes disappear on their own, and the
+ * code is deleted once it is used or once {@code auth.otp.maxAttempts}
+ * guesses have failed.
+ */
+@Service
+public class OtpStore {
+
+    public enum Result {
+        VALID, INVALID, EXPIRED, LOCKED
+    }
+
+    private static final String KEY_PREFIX = "otp:";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // KEYS[1] = otp key, ARGV = code hash, ttl seconds
+    private static final RedisScript<Long> ISSUE = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('HSET', KEYS[1], 'code', ARGV[1], 'attempts', 0) "
+                    + "return redis.call('EXPIRE', KEYS[1], ARGV[2])",
+            Long.class);
+
+    // KEYS[1] = otp key, ARGV = code hash, max attempts
+    // 1 valid, 0 invalid, -1 missing or expired, -2 too many attempts
+    private static final RedisScript<Long> VERIFY = new DefaultRedisScript<>(
+            "local code = redis.call('HGET', KEYS[1], 'code') "
+                    + "if not code then return -1 end "
+                    + "if code == ARGV[1] then redis.call('DEL', KEYS[1]) return 1 end "
+                    + "local attempts = redis.call('HINCRBY', KEYS[1], 'attempts', 1) "
+                    + "if attempts >= tonumber(ARGV[2]) then redis.call('DEL', KEYS[1]) return -2 end "
+                    + "return 0",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${auth.otp.ttlSeconds:180}")
+    private long ttlSeconds;
+
+    @Value("${auth.otp.maxAttempts:5}")
+    private int maxAttempts;
+
+    /**
+     * Issues a new code for the email, replacing any earlier one.
+     *
+     * @return the six digit code to send.
+     */
+    public String issue(String email) {
+        String otp = String.valueOf(100000 + RANDOM.nextInt(900000));
+        stringRedisTemplate.execute(ISSUE, List.of(KEY_PREFIX + normalize(email)),
+                hash(otp), String.valueOf(ttlSeconds));
+        return otp;
+    }
+
+    public Result verify(String email, String otp) {
+        if (email == null || otp == null) {
+            return Result.INVALID;
+        }
+
+        Long result = stringRedisTemplate.execute(VERIFY, List.of(KEY_PREFIX + normalize(email)),
+                hash(otp.trim()), String.valueOf(maxAttempts));
+        if (result == null) {
+            return Result.INVALID;
+        }
+        return switch (result.intValue()) {
+            case 1 -> Result.VALID;
+            case -1 -> Result.EXPIRED;
+            case -2 -> Result.LOCKED;
+            default -> Result.INVALID;
+        };
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase();
+    }
+
+    private static String hash(String otp) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(otp.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.strong.familyauth.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.strong.familyauth.Util.UserException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * PasswordHasher runs BCrypt off the request threads. Hashes are computed on a
+ * pool sized to the cores with a bounded queue; when the queue is full the
+ * caller gets a 429 right away, and a task that waited longer than
+ * {@code auth.hash.maxWaitMs} is dropped with a 503 instead of burning CPU
+ * for a client that has likely given up. A login storm therefore costs at
+ * most the hashing pool, and the other endpoints keep their Tomcat threads.
+ */
+@Service
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMs;
+    private final Timer queueWait;
+    private final Timer encodeTime;
+    private final Timer matchTime;
+    private final Counter rejected;
+    private final Counter expired;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+            @Value("${auth.hash.threads:0}") int threads,
+            @Value("${auth.hash.queueSize:64}") int queueSize,
+            @Value("${auth.hash.maxWaitMs:2000}") long maxWaitMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.maxWaitMs = maxWaitMs;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.queueWait = Timer.builder("auth.password.hash.queue.wait")
+                .description("Time a hash waited for a hashing thread")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.encodeTime = hashTime(meterRegistry, "encode");
+        this.matchTime = hashTime(meterRegistry, "matches");
+        this.rejected = shed(meterRegistry, "queue_full");
+        this.expired = shed(meterRegistry, "wait_expired");
+        meterRegistry.gauge("auth.password.hash.queue.size", executor, pool -> pool.getQueue().size());
+    }
+
+    /**
+     * Hashes a raw password with the configured BCrypt cost.
+     */
+    public String encode(String rawPassword) throws UserException {
+        return submit(encodeTime, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Checks a raw password against a stored hash.
+     */
+    public boolean matches(String rawPassword, String encodedPassword) throws UserException {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        return submit(matchTime, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T submit(Timer hashTime, Callable<T> hash) throws UserException {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                queueWait.record(waited, TimeUnit.NANOSECONDS);
+                if (TimeUnit.NANOSECONDS.toMillis(waited) > maxWaitMs) {
+                    expired.increment();
+                    throw new TimeoutException();
+                }
+                return hashTime.recordCallable(hash);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new UserException("Too many sign-in attempts right now. Please try again shortly.",
+                    HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new UserException("Interrupted while checking the password", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException | CancellationException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new UserException("The service is busy. Please try again shortly.",
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private static Timer hashTime(MeterRegistry meterRegistry, String op) {
+        return Timer.builder("auth.password.hash.duration")
+                .tag("op", op)
+                .description("BCrypt time on the hashing pool, without the queue wait")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static Counter shed(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.password.hash.shed")
+                .tag("reason", reason)
+                .description("Hash requests refused before running")
+                .register(meterRegistry);
+    }
+}
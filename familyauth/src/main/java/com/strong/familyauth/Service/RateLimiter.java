@@ -0,0 +1,52 @@
+package com.strong.familyauth.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+/**
+ * RateLimiter is a sliding-window log limiter in Redis. Each key is a sorted
+ * set of request timestamps; a request is admitted if fewer than the limit
+ * fall inside the window. The check and the insert run in one script, so
+ * concurrent requests on several nodes cannot overshoot the limit.
+ */
+@Service
+public class RateLimiter {
+
+    private static final String KEY_PREFIX = "ratelimit:";
+
+    // KEYS[1] = window key, ARGV = now ms, window ms, limit, member
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>(
+            "redis.call('ZREMRANGEBYSCORE', KEYS[1], 0, tonumber(ARGV[1]) - tonumber(ARGV[2])) "
+                    + "if redis.call('ZCARD', KEYS[1]) >= tonumber(ARGV[3]) then return 0 end "
+                    + "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[4]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "return 1",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Records a request against a key if the key is under its limit.
+     *
+     * @param key    what is limited, for example "otp:email:a@b.c".
+     * @param limit  the number of requests allowed per window.
+     * @param window the length of the sliding window.
+     * @return true if the request is admitted.
+     */
+    public boolean tryAcquire(String key, int limit, Duration window) {
+        Long admitted = stringRedisTemplate.execute(ACQUIRE, List.of(KEY_PREFIX + key),
+                String.valueOf(System.currentTimeMillis()),
+                String.valueOf(window.toMillis()),
+                String.valueOf(limit),
+                UUID.randomUUID().toString());
+        return admitted != null && admitted == 1L;
+    }
+}
@@ -0,0 +1,211 @@
+package com.strong.familyauth.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.strong.familyauth.Model.FollowEvent;
+import com.strong.familyauth.Model.Follow.Status;
+import com.strong.familyauth.Model.LiteUser;
+import com.strong.familyauth.Model.Suggestion;
+import com.strong.familyauth.Util.FollowGraph;
+import com.strong.familyauth.Util.FollowGraph.Candidate;
+import com.strong.familyauth.Util.UserException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * SuggestionService serves "people you may know": users followed by the
+ * people a user follows, ranked by how many of them follow each candidate.
+ * <p>
+ * Scoring runs on a {@link FollowGraph} loaded from the follows collection at
+ * startup and kept current by the follow events on user-update. Results are
+ * kept in a per-user top-K cache. A follow change marks the follower and up
+ * to {@code auth.suggestions.maxFanout} of their followers dirty, and dirty
+ * users that are cached are rescored in the background, so reads never wait
+ * on scoring once a user has been seen.
+ */
+@Service
+public class SuggestionService {
+
+    private static final int LOAD_BATCH = 50_000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LiteUserLoader liteUserLoader;
+
+    @Value("${auth.suggestions.topK:50}")
+    private int topK;
+
+    @Value("${auth.suggestions.maxFanout:5000}")
+    private int maxFanout;
+
+    private final FollowGraph graph = new FollowGraph();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final Cache<String, List<Candidate>> cache;
+    private final Timer computeTime;
+    // Follow events seen while the graph loads, replayed once it has
+    private final List<Runnable> pending = new ArrayList<>();
+    private volatile boolean loaded;
+
+    public SuggestionService(MeterRegistry meterRegistry,
+            @Value("${auth.suggestions.cacheSize:50000}") long cacheSize,
+            @Value("${auth.suggestions.ttlMinutes:60}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+        this.computeTime = Timer.builder("auth.suggestions.compute")
+                .description("Time to score one user's suggestions")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.suggestions.graph.users", graph, FollowGraph::size);
+    }
+
+    // After FollowService has backfilled the follows collection
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void load() {
+        Query query = Query.query(Criteria.where("status").is(Status.ACCEPTED));
+        query.fields().include("followerId", "followingId");
+
+        List<String[]> batch = new ArrayList<>(LOAD_BATCH);
+        try (var edges = mongoTemplate.stream(query, Document.class, "follows")) {
+            edges.forEach(edge -> {
+                batch.add(new String[] { edge.getString("followerId"), edge.getString("followingId") });
+                if (batch.size() >= LOAD_BATCH) {
+                    graph.addEdges(batch);
+                    batch.clear();
+                }
+            });
+        }
+        synchronized (pending) {
+            graph.addEdges(batch);
+            pending.forEach(Runnable::run);
+            pending.clear();
+            loaded = true;
+        }
+    }
+
+    /**
+     * @return up to limit suggestions, best first; empty until the graph has
+     *         loaded.
+     */
+    public List<Suggestion> suggest(String userId, int limit) throws UserException {
+        if (!loaded) {
+            return List.of();
+        }
+
+        List<Candidate> candidates = cache.get(userId, this::score);
+        if (candidates.size() > limit) {
+            candidates = candidates.subList(0, limit);
+        }
+
+        Map<String, Integer> mutuals = new HashMap<>();
+        List<String> ids = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            mutuals.put(candidate.userId(), candidate.mutuals());
+            ids.add(candidate.userId());
+        }
+
+        // Deleted users drop out here
+        List<Suggestion> suggestions = new ArrayList<>(ids.size());
+        for (LiteUser user : liteUserLoader.load(ids)) {
+            suggestions.add(new Suggestion(user, mutuals.get(user.getId())));
+        }
+        return suggestions;
+    }
+
+    public void onFollowEvent(FollowEvent event, String userId, String memberId) {
+        if (!deferUntilLoaded(() -> applyFollowEvent(event, userId, memberId))) {
+            applyFollowEvent(event, userId, memberId);
+        }
+    }
+
+    public void onUserDeleted(String userId) {
+        if (!deferUntilLoaded(() -> applyUserDeleted(userId))) {
+            applyUserDeleted(userId);
+        }
+    }
+
+    private void applyFollowEvent(FollowEvent event, String userId, String memberId) {
+        boolean changed = switch (event) {
+            case ADD_FOLLOWING -> graph.addEdge(userId, memberId);
+            case REMOVE_FOLLOWING -> graph.removeEdge(userId, memberId);
+        };
+        if (!changed) {
+            return;
+        }
+
+        // The follower's candidates change, and so do the counts of everyone
+        // who follows the follower
+        dirty.add(userId);
+        int[] followers = graph.followers(graph.idOf(userId));
+        for (int i = 0; i < Math.min(followers.length, maxFanout); i++) {
+            dirty.add(graph.keyOf(followers[i]));
+        }
+    }
+
+    private void applyUserDeleted(String userId) {
+        graph.removeUser(userId);
+        cache.invalidate(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${auth.suggestions.refreshMs:5000}")
+    public void refreshDirty() {
+        for (Iterator<String> it = dirty.iterator(); it.hasNext();) {
+            String userId = it.next();
+            it.remove();
+            // Users not in the cache are scored on their next read
+            if (cache.getIfPresent(userId) != null) {
+                cache.put(userId, score(userId));
+            }
+        }
+    }
+
+    /**
+     * The load streams a snapshot of the follows collection, so an event
+     * applied during it could be undone by an older edge read afterwards.
+     *
+     * @return true if the event was queued to run after the load.
+     */
+    private boolean deferUntilLoaded(Runnable event) {
+        if (loaded) {
+            return false;
+        }
+        synchronized (pending) {
+            if (loaded) {
+                return false;
+            }
+            pending.add(event);
+            return true;
+        }
+    }
+
+    private List<Candidate> score(String userId) {
+        return computeTime.record(() -> graph.suggest(userId, topK, maxFanout));
+    }
+}
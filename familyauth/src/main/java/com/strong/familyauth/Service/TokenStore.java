@@ -0,0 +1,222 @@
+package com.strong.familyauth.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import com.strong.familyauth.Model.Token;
+import com.strong.familyauth.Model.User;
+import com.strong.familyauth.Repository.TokenRepository;
+import com.strong.familyauth.Security.VerifiedTokenCache;
+
+/**
+ * TokenStore keeps the issued access and refresh tokens in Redis.
+ * <p>
+ * Every token is stored under {@code token:{sha256}} with a TTL equal to its
+ * JWT expiry, so expired tokens clean themselves up. The digests of a user's
+ * live tokens are also kept in the sorted set {@code user_tokens:{userId}},
+ * scored by their expiry; a token only counts as active while it is a member
+ * of that set, which makes revoking all tokens of a user a single UNLINK.
+ * Every save drops the members that have expired, so the set of a user who
+ * logs in every day stays as small as their live tokens.
+ * <p>
+ * {@code auth.tokenStore.mode} selects the backing store:
+ * <ul>
+ * <li>MONGO - the old tokens collection only.</li>
+ * <li>DUAL - writes go to Redis, reads fall back to Mongo and revocations hit
+ * both. Use during cutover until every Mongo token has expired.</li>
+ * <li>REDIS - Redis only.</li>
+ * </ul>
+ */
+@Service
+public class TokenStore {
+
+    public enum Mode {
+        MONGO, DUAL, REDIS
+    }
+
+    private static final String TOKEN_KEY = "token:";
+    private static final String USER_TOKENS_KEY = "user_tokens:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    @Value("${jwt.tokenValidityInMilliSeconds}")
+    private long accessTokenExpire;
+
+    @Value("${jwt.tokenRefreshInMilliSeconds}")
+    private long refreshTokenExpire;
+
+    @Value("${auth.tokenStore.mode:DUAL}")
+    private Mode mode;
+
+    /**
+     * Stores a freshly issued token pair for the user.
+     *
+     * @param accessToken  the access token.
+     * @param refreshToken the refresh token.
+     * @param user         the owner of the tokens.
+     */
+    public void save(String accessToken, String refreshToken, User user) {
+        if (mode == Mode.MONGO) {
+            Token token = new Token();
+            token.setAccessToken(accessToken);
+            token.setRefreshToken(refreshToken);
+            token.setLoggedOut(false);
+            token.setUser(user);
+            tokenRepository.save(token);
+            return;
+        }
+
+        String userId = user.getId();
+        String access = digest(accessToken);
+        String refresh = digest(refreshToken);
+        String userTokensKey = USER_TOKENS_KEY + userId;
+        long now = System.currentTimeMillis();
+
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({ "unchecked", "null" })
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.opsForValue().set(TOKEN_KEY + access, userId, Duration.ofMillis(accessTokenExpire));
+                ops.opsForValue().set(TOKEN_KEY + refresh, userId, Duration.ofMillis(refreshTokenExpire));
+                ops.opsForZSet().add(userTokensKey, access, now + accessTokenExpire);
+                ops.opsForZSet().add(userTokensKey, refresh, now + refreshTokenExpire);
+                ops.opsForZSet().removeRangeByScore(userTokensKey, Double.NEGATIVE_INFINITY, now);
+                ops.expire(userTokensKey, Duration.ofMillis(Math.max(accessTokenExpire, refreshTokenExpire)));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Checks whether an access token was issued to the user and not revoked.
+     *
+     * @param accessToken the access token.
+     * @param userId      the "id" claim of the token.
+     * @return true if the token is active.
+     */
+    public boolean isAccessTokenActive(String accessToken, String userId) {
+        return isActive(accessToken, userId, tokenRepository::findByAccessToken);
+    }
+
+    /**
+     * Checks whether a refresh token was issued to the user and not revoked.
+     *
+     * @param refreshToken the refresh token.
+     * @param userId       the id of the user presenting the token.
+     * @return true if the token is active.
+     */
+    public boolean isRefreshTokenActive(String refreshToken, String userId) {
+        return isActive(refreshToken, userId, tokenRepository::findByRefreshToken);
+    }
+
+    /**
+     * Revokes a single access or refresh token on every node.
+     *
+     * @param token the token to revoke.
+     * @return true if the token was found in a store.
+     */
+    public boolean revoke(String token) {
+        boolean found = false;
+
+        if (mode != Mode.MONGO) {
+            String key = digest(token);
+            String userId = stringRedisTemplate.opsForValue().getAndDelete(TOKEN_KEY + key);
+            if (userId != null) {
+                stringRedisTemplate.opsForZSet().remove(USER_TOKENS_KEY + userId, key);
+                found = true;
+            }
+        }
+
+        if (mode != Mode.REDIS) {
+            Optional<Token> stored = tokenRepository.findByAccessToken(token)
+                    .or(() -> tokenRepository.findByRefreshToken(token));
+            if (stored.isPresent()) {
+                tokenRepository.delete(stored.get());
+                found = true;
+            }
+        }
+
+        tokenCache.revokeToken(token);
+        return found;
+    }
+
+    /**
+     * Revokes every token of a user on every node. In Redis this only drops the
+     * user's token set; the orphaned token keys expire on their own.
+     *
+     * @param userId the id of the user.
+     */
+    public void revokeAll(String userId) {
+        if (mode != Mode.MONGO) {
+            stringRedisTemplate.unlink(USER_TOKENS_KEY + userId);
+        }
+
+        if (mode != Mode.REDIS) {
+            List<Token> validTokens = tokenRepository.findByUser(userId);
+            if (!validTokens.isEmpty()) {
+                tokenRepository.deleteAll(validTokens);
+            }
+        }
+
+        tokenCache.revokeUser(userId);
+    }
+
+    private boolean isActive(String token, String userId, Function<String, Optional<Token>> mongoLookup) {
+        if (mode != Mode.MONGO) {
+            String key = digest(token);
+            List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings({ "unchecked", "null" })
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForValue().get(TOKEN_KEY + key);
+                    ops.opsForZSet().score(USER_TOKENS_KEY + userId, key);
+                    return null;
+                }
+            });
+
+            boolean listed = results.get(1) instanceof Double expiresAt && expiresAt > System.currentTimeMillis();
+            if (userId != null && userId.equals(results.get(0)) && listed) {
+                return true;
+            }
+            if (mode == Mode.REDIS) {
+                return false;
+            }
+        }
+
+        return mongoLookup.apply(token)
+                .map(t -> !t.isLoggedOut())
+                .orElse(false);
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.strong.familyauth.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.strong.familyauth.Model.User;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * UserCache is the two-tier cache for user:{id}. A bounded in-process L1 with
+ * size and time based eviction sits in front of the shared Redis L2, so the
+ * filter and profile reads of hot users skip the Redis round trip and the
+ * Jackson decode.
+ * <p>
+ * Every write goes through {@link #put(User)} or {@link #evict(String)}, which
+ * update L2 and then broadcast the id over Redis pub/sub so the other nodes
+ * drop their L1 copy. The L1 TTL bounds staleness if a message is lost.
+ * <p>
+ * Values returned by {@link #get(String)} are shared and must not be modified;
+ * write paths use {@link #getForUpdate(String)}.
+ * <p>
+ * Username lookups go through a username:{username} to id mapping kept the
+ * same two ways, so a profile opened by username reuses the id-keyed entry.
+ * Mappings are never trusted on their own: callers check the username of the
+ * user a mapping points to, so a mapping left over from a rename or a swap of
+ * usernames between two accounts is ignored and replaced.
+ */
+@Component
+public class UserCache implements MessageListener {
+
+    public static final String INVALIDATE_CHANNEL = "auth:user-invalidate";
+
+    private static final String KEY_PREFIX = "user:";
+    private static final String USERNAME_PREFIX = "username:";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final RedisTemplate<String, User> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<String, User> local;
+    private final Cache<String, String> localIds;
+    private final Duration usernameTtl;
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Timer invalidationLag;
+
+    public UserCache(RedisTemplate<String, User> redisTemplate, StringRedisTemplate stringRedisTemplate,
+            RedisMessageListenerContainer listenerContainer, MeterRegistry meterRegistry,
+            @Value("${auth.userCache.l1MaxEntries:10000}") long maxEntries,
+            @Value("${auth.userCache.l1TtlSeconds:30}") long ttlSeconds,
+            @Value("${auth.userCache.usernameTtlHours:24}") long usernameTtlHours) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.localIds = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+        this.usernameTtl = Duration.ofHours(usernameTtlHours);
+
+        this.l1Hits = lookups(meterRegistry, "l1", "hit");
+        this.l1Misses = lookups(meterRegistry, "l1", "miss");
+        this.l2Hits = lookups(meterRegistry, "l2", "hit");
+        this.l2Misses = lookups(meterRegistry, "l2", "miss");
+        this.invalidationLag = Timer.builder("auth.user.cache.invalidation.lag")
+                .description("Time from a user write on one node to the L1 eviction on another")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        meterRegistry.gauge("auth.user.cache.l1.size", local, Cache::estimatedSize);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * @return the cached user, shared with other readers, or null if neither
+     *         tier has it.
+     */
+    public User get(String userId) {
+        User user = local.getIfPresent(userId);
+        if (user != null) {
+            l1Hits.increment();
+            return user;
+        }
+        l1Misses.increment();
+
+        user = redisTemplate.opsForValue().get(KEY_PREFIX + userId);
+        if (user == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        local.put(userId, user);
+        return user;
+    }
+
+    /**
+     * @return a private copy of the cached user that the caller may modify, or
+     *         null if neither tier has it.
+     */
+    public User getForUpdate(String userId) {
+        User user = get(userId);
+        return user == null ? null : copy(user);
+    }
+
+    /**
+     * Caches a user in both tiers and evicts it from the L1 of every other node.
+     * The password is cleared before caching, and the follow sets are left out;
+     * they live in the follow edges.
+     */
+    public void put(User user) {
+        user.setPassword(null);
+        User cached = copy(user);
+        redisTemplate.opsForValue().set(KEY_PREFIX + user.getId(), cached);
+        local.put(user.getId(), cached);
+        broadcast(user.getId());
+    }
+
+    /**
+     * Removes a user from both tiers on every node.
+     */
+    public void evict(String userId) {
+        redisTemplate.delete(KEY_PREFIX + userId);
+        local.invalidate(userId);
+        broadcast(userId);
+    }
+
+    /**
+     * @return the id last mapped to a username, or null. The mapping may be
+     *         stale; check the username of the user it points to.
+     */
+    public String idOf(String username) {
+        String userId = localIds.getIfPresent(username);
+        if (userId != null) {
+            return userId;
+        }
+
+        userId = stringRedisTemplate.opsForValue().get(USERNAME_PREFIX + username);
+        if (userId != null) {
+            localIds.put(username, userId);
+        }
+        return userId;
+    }
+
+    public void putUsername(String username, String userId) {
+        stringRedisTemplate.opsForValue().set(USERNAME_PREFIX + username, userId, usernameTtl);
+        localIds.put(username, userId);
+    }
+
+    /**
+     * Drops a username mapping. Other nodes are not told; their copy fails the
+     * username check on its next use.
+     */
+    public void evictUsername(String username) {
+        stringRedisTemplate.delete(USERNAME_PREFIX + username);
+        localIds.invalidate(username);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // nodeId|publishedAt|userId
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        local.invalidate(parts[2]);
+        long lag = System.currentTimeMillis() - Long.parseLong(parts[1]);
+        invalidationLag.record(Math.max(lag, 0), TimeUnit.MILLISECONDS);
+    }
+
+    private void broadcast(String userId) {
+        stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL,
+                nodeId + "|" + System.currentTimeMillis() + "|" + userId);
+    }
+
+    private static User copy(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy, "followers", "following", "followRequests");
+        return copy;
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("auth.user.cache")
+                .tag("tier", tier)
+                .tag("result", result)
+                .description("User cache lookups per tier")
+                .register(meterRegistry);
+    }
+}
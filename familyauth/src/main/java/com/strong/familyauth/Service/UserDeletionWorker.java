@@ -0,0 +1,100 @@
+package com.strong.familyauth.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strong.familyauth.Util.KafkaProducer;
+import com.strong.familyauth.Util.UserException;
+import com.strong.familyjwt.deletion.AbstractUserDeletionWorker;
+import com.strong.familyjwt.deletion.UserDeletion;
+
+/**
+ * UserDeletionWorker purges what a deleted account leaves behind in
+ * familyauth: follow edges with their Redis sorted sets, and profile images,
+ * in batches of {@code auth.deletion.batchSize} with
+ * {@code auth.deletion.pauseMs} between them.
+ * <p>
+ * The other services purge their own data off the same user-delete event and
+ * report on user-delete-complete; the reports are collected on the familyauth
+ * entry.
+ */
+@Service
+public class UserDeletionWorker extends AbstractUserDeletionWorker {
+
+    public static final String SERVICE = "familyauth";
+
+    @Autowired
+    private FollowService followService;
+
+    @Autowired
+    private ImageStorageService imageStorageService;
+
+    @Autowired
+    private KafkaProducer kafkaProducer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Predicate<UserDeletion>> steps = List.of(
+            deletion -> count(deletion, followService.purgeEdges(deletion.getUserId(), batchSize())),
+            deletion -> count(deletion, imageStorageService.deleteImagesOf(deletion.getUserId(), batchSize())),
+            deletion -> {
+                followService.dropKeys(deletion.getUserId());
+                return false;
+            });
+
+    public UserDeletionWorker(@Value("${auth.deletion.batchSize:500}") int batchSize,
+            @Value("${auth.deletion.pauseMs:200}") long pauseMs,
+            @Value("${auth.deletion.pollMs:5000}") long pollMs) {
+        super(SERVICE, batchSize, pauseMs, pollMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(UserDeletion.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(UserDeletion.class)
+                .forEach(indexOps::ensureIndex);
+    }
+
+    @KafkaListener(topics = "user-delete-complete", groupId = "familyauth-deletion")
+    public void consumeReports(String message) throws JsonProcessingException {
+        Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<>() {});
+        if (payload.get("id") instanceof String id && payload.get("service") instanceof String service) {
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(SERVICE + ":" + id)),
+                    new Update().addToSet("reports", service), UserDeletion.class);
+        }
+    }
+
+    @Override
+    protected List<Predicate<UserDeletion>> steps() {
+        return steps;
+    }
+
+    @Override
+    protected void reportDone(UserDeletion deletion) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(deletion.getId())),
+                new Update().addToSet("reports", SERVICE), UserDeletion.class);
+        try {
+            kafkaProducer.sendToKafka(Map.of("id", deletion.getUserId(), "service", SERVICE,
+                    "deleted", deletion.getDeleted()), "DELETE_COMPLETE");
+        } catch (UserException e) {
+            // The entry itself already records the purge as done
+        }
+    }
+}
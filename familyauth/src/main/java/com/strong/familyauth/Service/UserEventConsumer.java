@@ -0,0 +1,122 @@
+package com.strong.familyauth.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strong.familyauth.Model.FollowEvent;
+import com.strong.familyauth.Model.LiteUser;
+
+/**
+ * UserEventConsumer keeps the in-memory indexes of this node current with
+ * user changes, including the follow graph behind suggestions. Every node uses its own consumer group so
+ * each one sees every event.
+ * <p>
+ * The indexes are rebuilt from Mongo while the node starts, so the first time
+ * a partition is assigned it is read from the JVM start time rather than from
+ * the latest offset; events that landed during the rebuild are applied again,
+ * which every index tolerates. Nothing is committed (see
+ * {@code KafkaConfig#nodeListenerFactory}); a partition assigned again after a
+ * rebalance resumes after the last record this node handled.
+ */
+@Service
+public class UserEventConsumer implements ConsumerSeekAware {
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private AvailabilityFilter availabilityFilter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Next offset to read per partition, for reassignments
+    private final Map<TopicPartition, Long> positions = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        long startedAt = ManagementFactory.getRuntimeMXBean().getStartTime();
+        for (TopicPartition partition : assignments.keySet()) {
+            Long next = positions.get(partition);
+            if (next != null) {
+                callback.seek(partition.topic(), partition.partition(), next);
+            } else {
+                callback.seekToTimestamp(partition.topic(), partition.partition(), startedAt);
+            }
+        }
+    }
+
+    // auto.offset.reset only applies if a seek finds no offset; there is nothing newer to read then
+    @KafkaListener(topics = { "user-create", "user-update" },
+            groupId = "familyauth-index-#{T(java.util.UUID).randomUUID()}",
+            containerFactory = "nodeListenerFactory", properties = "auto.offset.reset=latest")
+    public void consumeUserEvents(String message,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset) throws JsonProcessingException {
+        positions.put(new TopicPartition(topic, partition), offset + 1);
+        Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<>() {});
+
+        if (!(payload.get("id") instanceof String id)) {
+            return;
+        }
+        if (payload.get("event") instanceof String event) {
+            if (payload.get("memberId") instanceof String memberId) {
+                FollowEvent followEvent;
+                try {
+                    followEvent = FollowEvent.valueOf(event);
+                } catch (IllegalArgumentException e) {
+                    // From a newer producer; retrying would not help
+                    return;
+                }
+                suggestionService.onFollowEvent(followEvent, id, memberId);
+            }
+            return;
+        }
+
+        if (payload.get("username") instanceof String username) {
+            availabilityFilter.add(AvailabilityFilter.Field.USERNAME, username);
+        }
+        if (payload.get("email") instanceof String email) {
+            availabilityFilter.add(AvailabilityFilter.Field.EMAIL, email);
+        }
+        if (!payload.containsKey("username") && !payload.containsKey("name") && !payload.containsKey("thumbnailId")) {
+            return;
+        }
+
+        LiteUser user = new LiteUser();
+        user.setId(id);
+        user.setUsername((String) payload.get("username"));
+        user.setName((String) payload.get("name"));
+        user.setThumbnailId((String) payload.get("thumbnailId"));
+        searchIndex.put(user);
+    }
+
+    @KafkaListener(topics = "user-delete", groupId = "familyauth-index-#{T(java.util.UUID).randomUUID()}",
+            containerFactory = "nodeListenerFactory", properties = "auto.offset.reset=latest")
+    public void consumeUserDeletes(String message,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset) throws JsonProcessingException {
+        positions.put(new TopicPartition(topic, partition), offset + 1);
+        Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<>() {});
+        if (payload.get("id") instanceof String id) {
+            searchIndex.remove(id);
+            suggestionService.onUserDeleted(id);
+        }
+    }
+}
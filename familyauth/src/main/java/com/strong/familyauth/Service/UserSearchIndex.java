@@ -0,0 +1,257 @@
+package com.strong.familyauth.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.strong.familyauth.Model.LiteUser;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * UserSearchIndex answers /user/search from memory instead of running an
+ * unanchored $regex over the users collection.
+ * <p>
+ * Every user is indexed by the lowercase prefixes of the username and of each
+ * word of the name (a sorted map, so a prefix is a range scan) and by the
+ * trigrams of the username and name (so a substring is an intersection of
+ * small posting sets). Results are ranked exact username, username prefix,
+ * name word prefix, then substring.
+ * <p>
+ * The index is rebuilt from Mongo on startup and kept current by the local
+ * write paths and by the user-create, user-update and user-delete events.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int MAX_CANDIDATES = 500;
+    private static final char SEPARATOR = '\0';
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, LiteUser> users = new ConcurrentHashMap<>();
+    // term + '\0' + id -> id
+    private final NavigableMap<String, String> prefixes = new ConcurrentSkipListMap<>();
+    // trigram -> ids
+    private final Map<String, Set<String>> grams = new ConcurrentHashMap<>();
+
+    // Runs before the Kafka listeners start, so no event is overwritten by the
+    // snapshot
+    @PostConstruct
+    public void rebuild() {
+        Query query = new Query();
+        query.fields().include("username", "name", "thumbnailId");
+
+        try (var stream = mongoTemplate.stream(query, Document.class, "users")) {
+            stream.forEach(doc -> {
+                LiteUser user = new LiteUser();
+                user.setId(doc.get("_id").toString());
+                user.setUsername(doc.getString("username"));
+                user.setName(doc.getString("name"));
+                user.setThumbnailId(doc.getString("thumbnailId"));
+                put(user);
+            });
+        }
+    }
+
+    /**
+     * Adds or replaces a user. Null fields keep their indexed value, so partial
+     * update events can be applied directly.
+     */
+    public synchronized void put(LiteUser update) {
+        if (update.getId() == null) {
+            return;
+        }
+
+        LiteUser previous = users.get(update.getId());
+        LiteUser user = new LiteUser();
+        user.setId(update.getId());
+        user.setUsername(pick(update.getUsername(), previous == null ? null : previous.getUsername()));
+        user.setName(pick(update.getName(), previous == null ? null : previous.getName()));
+        user.setThumbnailId(pick(update.getThumbnailId(), previous == null ? null : previous.getThumbnailId()));
+
+        if (previous != null) {
+            unindex(previous);
+        }
+        users.put(user.getId(), user);
+        index(user);
+    }
+
+    public synchronized void remove(String userId) {
+        LiteUser previous = users.remove(userId);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    /**
+     * @return the indexed lite profile of the user, or null if unknown.
+     */
+    public LiteUser get(String userId) {
+        return users.get(userId);
+    }
+
+    /**
+     * Finds users whose username or name contains the query, best matches first.
+     * Queries shorter than three characters only match prefixes.
+     */
+    public List<LiteUser> search(String query, int limit) {
+        String q = normalize(query);
+        if (q.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<String> candidates = new LinkedHashSet<>();
+        for (String id : prefixes.subMap(q, true, q + Character.MAX_VALUE, false).values()) {
+            if (candidates.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            candidates.add(id);
+        }
+        if (q.length() >= GRAM && candidates.size() < MAX_CANDIDATES) {
+            addSubstringMatches(q, candidates);
+        }
+
+        List<LiteUser> matches = new ArrayList<>(candidates.size());
+        for (String id : candidates) {
+            LiteUser user = users.get(id);
+            if (user != null && rank(user, q) < 4) {
+                matches.add(user);
+            }
+        }
+
+        matches.sort(Comparator.<LiteUser>comparingInt(user -> rank(user, q))
+                .thenComparingInt(user -> length(user.getUsername()))
+                .thenComparing(user -> normalize(user.getUsername())));
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    private void addSubstringMatches(String q, Set<String> candidates) {
+        List<Set<String>> postings = new ArrayList<>();
+        for (String gram : gramsOf(q)) {
+            Set<String> ids = grams.get(gram);
+            if (ids == null) {
+                return;
+            }
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> smallest = postings.get(0);
+        for (String id : smallest) {
+            if (candidates.size() >= MAX_CANDIDATES) {
+                return;
+            }
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(id);
+            }
+            if (inAll) {
+                candidates.add(id);
+            }
+        }
+    }
+
+    // 0 exact username, 1 username prefix, 2 name word prefix, 3 substring, 4 no
+    // match (a trigram false positive)
+    private static int rank(LiteUser user, String q) {
+        String username = normalize(user.getUsername());
+        if (username.equals(q)) {
+            return 0;
+        }
+        if (username.startsWith(q)) {
+            return 1;
+        }
+        for (String word : words(user.getName())) {
+            if (word.startsWith(q)) {
+                return 2;
+            }
+        }
+        if (username.contains(q) || normalize(user.getName()).contains(q)) {
+            return 3;
+        }
+        return 4;
+    }
+
+    private void index(LiteUser user) {
+        for (String term : termsOf(user)) {
+            prefixes.put(term + SEPARATOR + user.getId(), user.getId());
+        }
+        for (String gram : gramsOf(user)) {
+            grams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(user.getId());
+        }
+    }
+
+    private void unindex(LiteUser user) {
+        for (String term : termsOf(user)) {
+            prefixes.remove(term + SEPARATOR + user.getId());
+        }
+        for (String gram : gramsOf(user)) {
+            grams.computeIfPresent(gram, (k, ids) -> {
+                ids.remove(user.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static Set<String> termsOf(LiteUser user) {
+        Set<String> terms = new HashSet<>(words(user.getName()));
+        String username = normalize(user.getUsername());
+        if (!username.isEmpty()) {
+            terms.add(username);
+        }
+        return terms;
+    }
+
+    private static Set<String> gramsOf(LiteUser user) {
+        Set<String> result = gramsOf(normalize(user.getUsername()));
+        result.addAll(gramsOf(normalize(user.getName())));
+        return result;
+    }
+
+    private static Set<String> gramsOf(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(text.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static List<String> words(String name) {
+        List<String> result = new ArrayList<>();
+        for (String word : normalize(name).split("\\s+")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private static String pick(String value, String fallback) {
+        return value != null ? value : fallback;
+    }
+}
@@ -1,38 +1,32 @@
 package com.strong.familyauth.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
-import org.bson.Document;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
-import org.springframework.data.mongodb.core.aggregation.AggregationOperationContext;
-import org.springframework.data.mongodb.core.query.Criteria;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.strong.familyauth.Model.FollowEvent;
 import com.strong.familyauth.Model.LiteUser;
-import com.strong.familyauth.Model.Token;
+import com.strong.familyauth.Model.Relationship;
+import com.strong.familyauth.Model.Suggestion;
 import com.strong.familyauth.Model.User;
-import com.strong.familyauth.Repository.TokenRepository;
 import com.strong.familyauth.Repository.UserRepository;
+import com.strong.familyauth.Service.AvailabilityFilter.Field;
 import com.strong.familyauth.Util.JwtUtil;
 import com.strong.familyauth.Util.KafkaProducer;
 import com.strong.familyauth.Util.UserException;
@@ -44,10 +38,7 @@ public class UserService implements UserDetailsService {
     private UserRepository userRepo;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
-
-    @Autowired
-    AuthenticationManager authenticationManager;
+    private PasswordHasher passwordHasher;
 
     @Autowired
     EmailService emailService;
@@ -62,47 +53,104 @@ public class UserService implements UserDetailsService {
     User savedUser;
 
     @Autowired
-    private TokenRepository tokenRepository;
+    private TokenStore tokenStore;
+
+    @Autowired
+    private FollowService followService;
+
+    @Autowired
+    private UserSearchIndex searchIndex;
+
+    @Autowired
+    private FeedCandidateService feedCandidateService;
+
+    @Autowired
+    private LiteUserLoader liteUserLoader;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private AvailabilityFilter availabilityFilter;
 
     @Autowired
-    private MongoTemplate mongoTemplate;
+    private UserDeletionWorker userDeletionWorker;
+
     @Autowired
     private KafkaProducer kafkaProducer;
     @Autowired
-    private RedisTemplate<String, User> redisTemplate;
+    private UserCache userCache;
 
-    public boolean canAccessProfile(String mineId, String yourId) {
-        String redisKey = "user:" + yourId;
-        User user = redisTemplate.opsForValue().get(redisKey);
+    @Autowired
+    private RateLimiter rateLimiter;
 
-        if (user == null) {
-            Optional<User> userOptional = userRepo.findById(yourId);
+    @Value("${auth.otp.emailLimit:3}")
+    private int otpEmailLimit;
 
-            if (userOptional.isEmpty()) {
-                return false; // user doesn't exist
-            }
+    @Value("${auth.otp.ipLimit:20}")
+    private int otpIpLimit;
 
-            user = userOptional.get();
-            user.setPassword(null);
-            redisTemplate.opsForValue().set(redisKey, user); // cache it
-        }
+    @Value("${auth.otp.windowSeconds:600}")
+    private long otpWindowSeconds;
 
-        // If public profile, allow access
-        if (!user.isPrivacy()) {
-            return true;
-        }
+    public boolean canAccessProfile(String mineId, String yourId) throws UserException {
+        Relationship relationship = getRelationships(mineId, List.of(yourId)).get(yourId);
+        return relationship != null && relationship.isCanAccess();
+    }
 
-        // If private, allow only if requester is a follower
-        return user.getFollowers().contains(mineId);
+    /**
+     * Relationship flags between one viewer and a page of users. Privacy comes
+     * from one projected $in query and the follow flags from one Redis
+     * pipeline, so no target is loaded in full.
+     *
+     * @return one entry per existing target, in request order.
+     */
+    public Map<String, Relationship> getRelationships(String viewerId, List<String> targetIds)
+            throws UserException {
+        if (targetIds.size() > LiteUserLoader.MAX_BATCH) {
+            throw new UserException("At most " + LiteUserLoader.MAX_BATCH + " ids per request",
+                    HttpStatus.BAD_REQUEST);
+        }
+
+        Map<String, Boolean> privacy = new HashMap<>();
+        for (User target : userRepo.findPrivacyByIdIn(targetIds)) {
+            privacy.put(target.getId(), target.isPrivacy());
+        }
+
+        Map<String, Relationship> relationships = followService.relationships(viewerId, privacy.keySet());
+        Map<String, Relationship> result = new LinkedHashMap<>();
+        for (String targetId : targetIds) {
+            Relationship relationship = relationships.get(targetId);
+            if (relationship == null) {
+                continue; // unknown user
+            }
+            relationship.setPrivacy(privacy.get(targetId));
+            relationship.setCanAccess(!relationship.isPrivacy() || relationship.isFollowing()
+                    || targetId.equals(viewerId));
+            result.put(targetId, relationship);
+        }
+        return result;
     }
 
-    public String sendEmailOtp(String email) throws UserException {
-        Optional<User> existingUser = userRepo.findByEmail(email);
-        if (existingUser.isPresent()) {
-            throw new UserException("Email already in use: " + email);
+    /**
+     * Sends a signup OTP. Requests are limited per email and per client IP
+     * before anything touches Mongo or the mail pipeline.
+     */
+    public String sendEmailOtp(String email, String clientIp) throws UserException {
+        Duration window = Duration.ofSeconds(otpWindowSeconds);
+        if (!rateLimiter.tryAcquire("otp:ip:" + clientIp, otpIpLimit, window)
+                || !rateLimiter.tryAcquire("otp:email:" + email.trim().toLowerCase(), otpEmailLimit, window)) {
+            throw new UserException("Too many OTP requests. Please try again later.", HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        if (availabilityFilter.mightBeTaken(Field.EMAIL, email)) {
+            if (userRepo.findByEmail(email).isPresent()) {
+                throw new UserException("Email already in use: " + email);
+            }
+            availabilityFilter.recordFalsePositive(Field.EMAIL);
         }
         emailService.sendOtpEmail(email);
-        return "Email sent successfully! Validity is 3 Minutes.";
+        return "Email sent successfully!";
     }
 
     public Map<String, Object> signUp(User user) throws UserException {
@@ -110,12 +158,16 @@ public class UserService implements UserDetailsService {
             throw new UserException("Incorrect OTP/Expired OTP. Please try again.");
         }
 
-        if (!isUsernameAvailable(user.getUsername())) {
+        // Authoritative checks, the filters of other nodes may lag a fresh signup
+        if (userRepo.findByUsername(user.getUsername()).isPresent()) {
             throw new UserException("Check Your Username");
         }
+        if (userRepo.findByEmail(user.getEmail()).isPresent()) {
+            throw new UserException("Email already in use: " + user.getEmail());
+        }
 
         user.setBio("");
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
+        user.setPassword(passwordHasher.encode(user.getPassword()));
         user.setAccountNonExpired(true);
         user.setAccountNonLocked(true);
         user.setEnabled(true);
@@ -123,186 +175,79 @@ public class UserService implements UserDetailsService {
         user.setPhotoId("");
         user.setPrivacy(false);
         user.setCredentialsNonExpired(true);
-        user.setFollowers(new HashSet<>());
-        user.setFollowing(new HashSet<>());
         user.setWebsite("");
 
         String refreshToken = jwtUtil.generateRefreshToken(user);
         User save = userRepo.save(user);
+        availabilityFilter.add(Field.USERNAME, save.getUsername());
+        availabilityFilter.add(Field.EMAIL, save.getEmail());
         String accessToken = jwtUtil.generateAccessToken(save);
-        save.setPassword(null);
-        redisTemplate.opsForValue().set("user:" + save.getId(), save);
+        userCache.put(save);
+        userCache.putUsername(save.getUsername(), save.getId());
         saveToken(accessToken, refreshToken, save);
+        publishCreated(save);
         Map<String, Object> tokens = new HashMap<>();
         tokens.put("accessToken", accessToken);
         tokens.put("refreshToken", refreshToken);
+        save.setFollowers(new LinkedHashSet<>());
+        save.setFollowing(new LinkedHashSet<>());
+        save.setFollowRequests(new LinkedHashSet<>());
         tokens.put("myProfile", save);
 
         return tokens;
     }
 
     public boolean rejectFollowRequest(String mineId, String yourId) throws UserException {
-        String mineKey = "user:" + mineId;
-
-        // Try Redis
-        User mineUser = redisTemplate.opsForValue().get(mineKey);
-
-        // Fallback to DB
-        if (mineUser == null) {
-            mineUser = userRepo.findById(yourId).orElse(null);
-        }
-
-        if (mineUser == null) {
+        if (userCache.get(mineId) == null && !userRepo.existsById(mineId)) {
             throw new UserException("User not found: " + mineId);
         }
-        // Check and remove follow request
-        if (mineUser.getFollowRequests().contains(yourId)) {
-            mineUser.getFollowRequests().remove(yourId);
-            mineUser.setPassword(null);
-            // 🔥 Correct Kafka payload — send updated list
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("id", yourId);
-            payload.put("followRequests", mineUser.getFollowRequests());
-            kafkaProducer.sendToKafka(payload, "UPDATE");
-            redisTemplate.opsForValue().set(mineKey, mineUser);
-            return true;
-        }
-
-        return false;
+        return followService.removeRequest(yourId, mineId);
     }
 
     public boolean acceptFollowRequest(String mineId, String userId) throws UserException {
-        String mineKey = "user:" + mineId;
-        String userKey = "user:" + userId;
-
-        User mineUser = redisTemplate.opsForValue().get(mineKey);
-        User user = redisTemplate.opsForValue().get(userKey);
-
-        // Fallback to DB if not in Redis
-        if (mineUser == null) {
-            mineUser = userRepo.findById(mineId).orElse(null);
-        }
-
-        if (user == null) {
-            user = userRepo.findById(userId).orElse(null);
-        }
-        // Validate and process the follow request
-        if (mineUser != null && user != null) {
-            if (mineUser.getFollowRequests().contains(userId)) {
-
-                // Remove request
-                mineUser.getFollowRequests().remove(userId);
-
-                // Add to followers/following
-                // Update 1: mineUser (id = mineId, followers = Set of ids)
-                Set<String> mineFollowers = mineUser.getFollowers();
-                if (mineFollowers == null)
-                    mineFollowers = new HashSet<>();
-                mineFollowers.add(userId);
-
-                Map<String, Object> minePayload = new HashMap<>();
-                minePayload.put("id", mineId);
-                minePayload.put("followers", mineFollowers); // sending full updated set
-                kafkaProducer.sendToKafka(minePayload, "UPDATE");
-
-                // Update 2: user (id = userId, following = Set of ids)
-                Set<String> userFollowing = user.getFollowing();
-                if (userFollowing == null)
-                    userFollowing = new HashSet<>();
-                userFollowing.add(mineId);
-
-                Map<String, Object> userPayload = new HashMap<>();
-                userPayload.put("id", userId);
-                userPayload.put("following", userFollowing); // sending full updated set
-                kafkaProducer.sendToKafka(userPayload, "UPDATE");
-
-                // Update Redis again after saving
-                mineUser.setPassword(null);
-                user.setPassword(null);
-                redisTemplate.opsForValue().set(mineKey, mineUser);
-                redisTemplate.opsForValue().set(userKey, user);
-
-                return true;
-            }
+        boolean exist = (userCache.get(mineId) != null || userRepo.existsById(mineId))
+                && (userCache.get(userId) != null || userRepo.existsById(userId));
+        if (exist && followService.accept(userId, mineId)) {
+            kafkaProducer.sendFollowEvent(userId, FollowEvent.ADD_FOLLOWING, mineId);
+            return true;
         }
-
         return false;
     }
 
     public String toggleFollower(String mineId, String yourId, String imageUrl) throws UserException {
-        String mineKey = "user:" + mineId;
-        String yourKey = "user:" + yourId;
-
-        // Fetch mine user from Redis or DB
-        User mine = redisTemplate.opsForValue().get(mineKey);
+        // Fetch mine user from cache or DB
+        User mine = userCache.get(mineId);
         if (mine == null) {
             mine = userRepo.findById(mineId).orElseThrow(() -> new UserException("User not found: " + mineId));
         }
 
-        // Fetch your user from Redis or DB
-        User your = redisTemplate.opsForValue().get(yourKey);
+        // Fetch your user from cache or DB
+        User your = userCache.get(yourId);
         if (your == null) {
             your = userRepo.findById(yourId).orElseThrow(() -> new UserException("User not found: " + yourId));
         }
 
         // 🔒 Handle private account
         if (your.isPrivacy()) {
-            if (your.getFollowRequests() == null) {
-                your.setFollowRequests(new HashSet<>());
-            }
-
-            boolean alreadyRequested = your.getFollowRequests().contains(mineId);
-
-            if (alreadyRequested) {
-                your.getFollowRequests().remove(mineId);
-            } else {
+            boolean alreadyRequested = followService.removeRequest(mineId, yourId);
+            if (!alreadyRequested && followService.request(mineId, yourId)) {
                 emailService.sendFollowRequestEmail(your.getEmail(), mine.getEmail(), imageUrl);
-                your.getFollowRequests().add(mineId);
             }
 
-            // Update Redis cache
-            your.setPassword(null);
-            redisTemplate.opsForValue().set(yourKey, your);
-
-            // 🔥 Kafka payload
-            Map<String, Object> requestPayload = new HashMap<>();
-            requestPayload.put("id", yourId);
-            requestPayload.put("followRequests", new ArrayList<>(your.getFollowRequests()));
-            kafkaProducer.sendToKafka(requestPayload, "UPDATE");
-
             return alreadyRequested
                     ? "Follow request removed."
                     : "Follow request sent successfully.";
         }
 
         // 🟢 Public follow/unfollow
-        boolean isAlreadyFollowing = mine.getFollowing().contains(yourId);
-
-        if (isAlreadyFollowing) {
-            mine.getFollowing().remove(yourId);
-            your.getFollowers().remove(mineId);
-        } else {
-            mine.getFollowing().add(yourId);
-            your.getFollowers().add(mineId);
+        boolean isAlreadyFollowing = followService.unfollow(mineId, yourId);
+        if (!isAlreadyFollowing) {
+            followService.follow(mineId, yourId);
         }
 
-        // Update Redis cache
-        mine.setPassword(null);
-        your.setPassword(null);
-        redisTemplate.opsForValue().set(mineKey, mine);
-        redisTemplate.opsForValue().set(yourKey, your);
-
-        // 🔥 Kafka payloads with only actual fields in User
-        Map<String, Object> minePayload = new HashMap<>();
-        minePayload.put("id", mineId);
-        minePayload.put("following", new ArrayList<>(mine.getFollowing()));
-
-        Map<String, Object> yourPayload = new HashMap<>();
-        yourPayload.put("id", yourId);
-        yourPayload.put("followers", new ArrayList<>(your.getFollowers()));
-
-        kafkaProducer.sendToKafka(minePayload, "UPDATE");
-        kafkaProducer.sendToKafka(yourPayload, "UPDATE");
+        // 🔥 Kafka delta for the suggestion graph
+        kafkaProducer.sendFollowEvent(mineId,
+                isAlreadyFollowing ? FollowEvent.REMOVE_FOLLOWING : FollowEvent.ADD_FOLLOWING, yourId);
 
         return isAlreadyFollowing ? "Unfollowed successfully." : "Followed successfully.";
     }
@@ -321,38 +266,41 @@ public class UserService implements UserDetailsService {
             throw new UserException("Your account is disabled. Visit the Offical Support", HttpStatus.UNAUTHORIZED);
         }
 
-        try {
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(
-                    email,
-                    password));
-        } catch (AuthenticationException e) {
-            throw new UserException(e.getMessage());
+        // The user is already loaded, so only the BCrypt check is left and it
+        // runs on the hashing pool rather than the request thread
+        if (!passwordHasher.matches(password, user.getPassword())) {
+            throw new UserException("Bad credentials");
         }
-        revokeAllTokens(user);
+        revokeAllTokens(user.getId());
         String accessToken = jwtUtil.generateAccessToken(user);
         String refreshToken = jwtUtil.generateRefreshToken(user);
         saveToken(accessToken, refreshToken, user);
 
-        user.setPassword(null);
-        redisTemplate.opsForValue().set("user:" + user.getId(), user);
+        userCache.put(user);
 
         Map<String, Object> tokens = new HashMap<>();
         tokens.put("accessToken", accessToken);
         tokens.put("refreshToken", refreshToken);
-        tokens.put("myProfile", user);
+        tokens.put("myProfile", withFollowSets(user));
         return tokens;
     }
 
     public boolean isUsernameAvailable(String username) {
-        Optional<User> existingUser = userRepo.findByUsername(username);
-        return !existingUser.isPresent();
+        // A filter miss is definite, only possible hits go to Mongo
+        if (!availabilityFilter.mightBeTaken(Field.USERNAME, username)) {
+            return true;
+        }
+        if (userRepo.findByUsername(username).isPresent()) {
+            return false;
+        }
+        availabilityFilter.recordFalsePositive(Field.USERNAME);
+        return true;
     }
 
-    public List<Map<String, Object>> searchByUserName(String username) {
-        List<User> users = userRepo.findByUsernameContaining(username);
+    public List<Map<String, Object>> searchByUserName(String username, int limit) {
         List<Map<String, Object>> result = new ArrayList<>();
 
-        for (User user : users) {
+        for (LiteUser user : searchIndex.search(username, limit)) {
             Map<String, Object> userMap = new HashMap<>();
             userMap.put("id", user.getId());
             userMap.put("username", user.getUsername());
@@ -365,87 +313,94 @@ public class UserService implements UserDetailsService {
     }
 
     public List<LiteUser> findRandomFeedUsers(String mineId, int limit) {
-        Aggregation aggregation = Aggregation.newAggregation(
-                Aggregation.facet()
-                        // Step 1: Fetch users I follow or who follow me (private or public)
-                        .and(
-                                Aggregation.match(
-                                        new Criteria().orOperator(
-                                                Criteria.where("following").in(mineId),
-                                                Criteria.where("followers").in(mineId))),
-                                Aggregation.project()
-                                        .and("_id").as("id")
-                                        .andInclude("username", "name", "thumbnailId"),
-                                Aggregation.sample(limit))
-                        .as("followedUsers")
-
-                        // Step 2: Fetch random public users (excluding self)
-                        .and(
-                                Aggregation.match(
-                                        new Criteria().and("_id").ne(mineId)
-                                                .and("privacy").is(false)),
-                                Aggregation.sample(limit),
-                                Aggregation.project()
-                                        .and("_id").as("id")
-                                        .andInclude("username", "name", "thumbnailId"))
-                        .as("publicUsers"),
-
-                // Step 3: Merge the results from both facets
-                new AggregationOperation() {
-                    @SuppressWarnings("null")
-                    @Override
-                    public Document toDocument(AggregationOperationContext context) {
-                        return new Document("$project",
-                                new Document("users",
-                                        new Document("$concatArrays",
-                                                List.of("$followedUsers", "$publicUsers"))));
-                    }
-                },
-
-                Aggregation.unwind("users"),
-                Aggregation.replaceRoot("users"),
-                Aggregation.limit(limit));
-
-        return mongoTemplate.aggregate(aggregation, "users", LiteUser.class).getMappedResults();
-    }
-
-    public Optional<LiteUser> findLiteUserById(String userId) {
-        Aggregation aggregation = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("_id").is(userId)),
-                Aggregation.project()
-                        .and("_id").as("id")
-                        .andInclude("username", "name", "thumbnailId"));
-
-        List<LiteUser> users = mongoTemplate.aggregate(aggregation, "users", LiteUser.class).getMappedResults();
-        return users.isEmpty() ? Optional.empty() : Optional.of(users.get(0));
+        return feedCandidateService.sample(mineId, limit);
+    }
+
+    public List<Suggestion> getSuggestions(String userId, int limit) throws UserException {
+        return suggestionService.suggest(userId, limit);
+    }
+
+    public Optional<LiteUser> findLiteUserById(String userId) throws UserException {
+        return liteUserLoader.load(List.of(userId)).stream().findFirst();
+    }
+
+    public List<LiteUser> findLiteUsersByIds(List<String> userIds) throws UserException {
+        return liteUserLoader.load(userIds);
     }
 
     // BY USERNAME
     public User getUserByUsername(String username) throws UserException {
-        User user = userRepo.findByUsername(username)
+        String userId = userCache.idOf(username);
+        if (userId != null) {
+            User user = userCache.get(userId);
+            if (user != null && username.equals(user.getUsername())) {
+                return withFollowSets(user);
+            }
+            // Renamed since the mapping was cached
+            userCache.evictUsername(username);
+        }
+
+        User stored = userRepo.findByUsername(username)
                 .orElseThrow(() -> new UserException("User not found"));
-        user.setPassword(null);
-        return user;
+        User cached = userCache.get(stored.getId());
+        if (cached == null) {
+            userCache.put(stored);
+            cached = stored;
+        } else if (!username.equals(cached.getUsername())) {
+            // Mongo has not caught up with a rename yet
+            throw new UserException("User not found");
+        }
+
+        userCache.putUsername(username, cached.getId());
+        return withFollowSets(cached);
     }
 
     // BY USERID
     public User getUserByUserId(String userId) throws UserException {
-        String redisKey = "user:" + userId;
-        // Check Redis cache first
-        User user = redisTemplate.opsForValue().get(redisKey);
+        // Check the cache first
+        User user = userCache.get(userId);
 
         // Fallback to MongoDB if not found
         if (user == null) {
             user = userRepo.findById(userId)
                     .orElseThrow(() -> new UserException("User not found"));
-            // Store in Redis for future requests
-            user.setPassword(null);
-            redisTemplate.opsForValue().set(redisKey, user);
-        } else {
-            user.setPassword(null); // Just in case it's cached
+            // Cache for future requests
+            userCache.put(user);
         }
 
-        return user;
+        return withFollowSets(user);
+    }
+
+    /**
+     * The follow sets are neither stored on the user document nor cached with
+     * it. Profile responses get them from the follow edges, on a copy so the
+     * shared cached user is left alone.
+     */
+    private User withFollowSets(User user) {
+        User profile = new User();
+        BeanUtils.copyProperties(user, profile);
+        profile.setFollowers(new LinkedHashSet<>(followService.getFollowers(user.getId(), 0, Integer.MAX_VALUE)));
+        profile.setFollowing(new LinkedHashSet<>(followService.getFollowing(user.getId(), 0, Integer.MAX_VALUE)));
+        profile.setFollowRequests(
+                new LinkedHashSet<>(followService.getFollowRequests(user.getId(), 0, Integer.MAX_VALUE)));
+        return profile;
+    }
+
+    // Lets other nodes index the new user
+    private void publishCreated(User user) throws UserException {
+        LiteUser created = new LiteUser();
+        created.setId(user.getId());
+        created.setUsername(user.getUsername());
+        created.setName(user.getName());
+        created.setThumbnailId(user.getThumbnailId());
+        searchIndex.put(created);
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("id", user.getId());
+        payload.put("username", user.getUsername());
+        payload.put("name", user.getName());
+        payload.put("email", user.getEmail());
+        kafkaProducer.sendToKafka(payload, "CREATE");
     }
 
     private String getAuthenticatedUserEmail() {
@@ -466,10 +421,8 @@ public class UserService implements UserDetailsService {
             throw new UserException("You are not authorized to access this profile");
         }
 
-        String redisKey = "user:" + id;
-
-        // Try Redis first
-        User existingUser = redisTemplate.opsForValue().get(redisKey);
+        // Try the cache first
+        User existingUser = userCache.getForUpdate(id);
 
         // Fallback to Mongo if not cached
         if (existingUser == null) {
@@ -478,10 +431,10 @@ public class UserService implements UserDetailsService {
         }
 
         existingUser.setEmail(email);
+        availabilityFilter.add(Field.EMAIL, email);
 
-        // Update Redis cache
-        existingUser.setPassword(null); // Ensure password is not exposed
-        redisTemplate.opsForValue().set(redisKey, existingUser);
+        // Update cache, the password is not cached
+        userCache.put(existingUser);
 
         userRepo.save(existingUser);
         return savedUser.getEmail();
@@ -492,14 +445,12 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new UserException("User not found"));
         existingUser.setPhone(phone);
         User savedUser = userRepo.save(existingUser);
+        userCache.evict(id);
         return savedUser.getPhone();
     }
 
     // Update Privacy
     public boolean updatePrivacy(Boolean privacy, String userId) throws UserException {
-        // Try fetching from Redis first
-        String redisKey = "user:" + userId;
-
         // Fallback to DB
         User existingUser = userRepo.findById(userId)
                 .orElseThrow(() -> new UserException("User not found"));
@@ -508,18 +459,17 @@ public class UserService implements UserDetailsService {
         // Save to DB
         userRepo.save(existingUser);
 
-        // Update Redis cache
-        existingUser.setPassword(null);
-        redisTemplate.opsForValue().set(redisKey, existingUser);
+        // Update cache
+        userCache.put(existingUser);
+        feedCandidateService.onPrivacyChanged(userId, existingUser.isPrivacy());
 
         return existingUser.isPrivacy();
     }
 
-    public User updateUser(MultipartFile file, User updatedUser, MultipartFile thumbnail) throws UserException {
+    public User updateUser(MultipartFile file, User updatedUser) throws UserException {
         String loggedInEmail = getAuthenticatedUserEmail();
 
-        String redisKey = "user:" + updatedUser.getId();
-        User existingUser = redisTemplate.opsForValue().get(redisKey);
+        User existingUser = userCache.getForUpdate(updatedUser.getId());
 
         if (existingUser == null) {
             existingUser = userRepo.findById(updatedUser.getId())
@@ -534,8 +484,7 @@ public class UserService implements UserDetailsService {
 
         // Profile picture update
         if (file != null && !file.isEmpty()) {
-            Map<String, String> uploadImage = imageStorageService.uploadProfileImage(file, existingUser.getId(),
-                    thumbnail);
+            Map<String, String> uploadImage = imageStorageService.uploadProfileImage(file, existingUser.getId());
             existingUser.setPhotoId(uploadImage.get("mediaId"));
             existingUser.setThumbnailId(uploadImage.get("thumbnailId"));
 
@@ -548,8 +497,10 @@ public class UserService implements UserDetailsService {
             existingUser.setWebsite(updatedUser.getWebsite());
             updatedFields.put("website", updatedUser.getWebsite());
         }
+        String previousUsername = existingUser.getUsername();
         if (updatedUser.getUsername() != null) {
             existingUser.setUsername(updatedUser.getUsername());
+            availabilityFilter.add(Field.USERNAME, updatedUser.getUsername());
             updatedFields.put("username", updatedUser.getUsername());
         }
         if (updatedUser.getName() != null) {
@@ -562,8 +513,11 @@ public class UserService implements UserDetailsService {
         }
 
         // Cache updated user
-        existingUser.setPassword(null);
-        redisTemplate.opsForValue().set(redisKey, existingUser);
+        userCache.put(existingUser);
+        if (!existingUser.getUsername().equals(previousUsername)) {
+            userCache.evictUsername(previousUsername);
+            userCache.putUsername(existingUser.getUsername(), existingUser.getId());
+        }
 
         updatedFields.put("id", existingUser.getId());
 
@@ -571,13 +525,20 @@ public class UserService implements UserDetailsService {
             kafkaProducer.sendToKafka(updatedFields, "UPDATE");
         }
 
-        return existingUser;
+        LiteUser indexed = new LiteUser();
+        indexed.setId(existingUser.getId());
+        indexed.setUsername(existingUser.getUsername());
+        indexed.setName(existingUser.getName());
+        indexed.setThumbnailId(existingUser.getThumbnailId());
+        searchIndex.put(indexed);
+
+        return withFollowSets(existingUser);
     }
 
     public void deleteUser(String userId) throws UserException {
         String loggedInEmail = getAuthenticatedUserEmail();
 
-        User user = redisTemplate.opsForValue().get("user:" + userId);
+        User user = userCache.get(userId);
 
         if (user == null) {
             Optional<User> userOptional = userRepo.findById(userId);
@@ -591,18 +552,21 @@ public class UserService implements UserDetailsService {
             throw new UserException("You are not authorized to access this profile");
         }
 
-        redisTemplate.delete("user:" + userId);
+        userCache.evict(userId);
+        userCache.evictUsername(user.getUsername());
 
         userRepo.deleteById(userId);
+        searchIndex.remove(userId);
+        tokenStore.revokeAll(userId);
+
+        // Follows, images and the data in the other services are purged in the
+        // background, see UserDeletionWorker
+        userDeletionWorker.enqueue(userId);
+        kafkaProducer.sendToKafka(Map.of("id", userId), "DELETE");
     }
 
     private void saveToken(String accessToken, String refreshToken, User user) {
-        Token token = new Token();
-        token.setAccessToken(accessToken);
-        token.setRefreshToken(refreshToken);
-        token.setLoggedOut(false);
-        token.setUser(user);
-        tokenRepository.save(token);
+        tokenStore.save(accessToken, refreshToken, user);
     }
 
     public Map<String, String> refreshToken(String refreshToken) throws UserException {
@@ -634,34 +598,29 @@ public class UserService implements UserDetailsService {
         return tokens;
     }
 
-    public void logout(String accessToken) {
-        Optional<Token> byAccessToken = tokenRepository.findByAccessToken(accessToken);
-        revokeAllTokens(byAccessToken.get().getUser());
+    public void logout(String accessToken) throws UserException {
+        revokeAllTokens(jwtUtil.extractUserId(accessToken));
     }
 
     public void revokeRefreshToken(String refreshToken) throws UserException {
-        Token token = tokenRepository.findByRefreshToken(refreshToken)
-                .orElseThrow(() -> new UserException("Token not found"));
-        tokenRepository.delete(token);
+        if (!tokenStore.revoke(refreshToken)) {
+            throw new UserException("Token not found");
+        }
     }
 
-    private void revokeAllTokens(User user) {
-        List<Token> validTokens = tokenRepository.findByUser(user.getId());
-        if (!validTokens.isEmpty()) {
-            tokenRepository.deleteAll(validTokens);
-        }
+    private void revokeAllTokens(String userId) {
+        tokenStore.revokeAll(userId);
     }
 
     public void revokeAccessToken(String accessToken) throws UserException {
-        Token token = tokenRepository.findByAccessToken(accessToken)
-                .orElseThrow(() -> new UserException("Token not found"));
-        tokenRepository.delete(token);
+        if (!tokenStore.revoke(accessToken)) {
+            throw new UserException("Token not found");
+        }
     }
 
     public UserDetails loadbyUserId(String userId) throws UsernameNotFoundException {
-        // First check Redis
-        String redisKey = "user:" + userId;
-        User user = redisTemplate.opsForValue().get(redisKey);
+        // First check the cache
+        User user = userCache.get(userId);
 
         if (user != null) {
             return user;
@@ -671,9 +630,8 @@ public class UserService implements UserDetailsService {
         user = userRepo.findById(userId)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
 
-        // Save to Redis for future requests
-        user.setPassword(null);
-        redisTemplate.opsForValue().set(redisKey, user);
+        // Cache for future requests
+        userCache.put(user);
         return user;
     }
 
@@ -0,0 +1,164 @@
+package com.strong.familyauth.Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BloomFilter is a scalable Bloom filter of strings. It starts with one
+ * filter sized for the expected count at the target false-positive rate and,
+ * when that fills, adds a filter twice the size with half the rate, so the
+ * combined rate stays under twice the target however many entries arrive.
+ * <p>
+ * Adds and lookups are lock-free; bits are set with compare-and-set on a
+ * shared word array.
+ */
+public class BloomFilter {
+
+    private static final double TIGHTENING = 0.5;
+    private static final int GROWTH = 2;
+
+    private final CopyOnWriteArrayList<Slice> slices = new CopyOnWriteArrayList<>();
+
+    public BloomFilter(long expected, double falsePositiveRate) {
+        slices.add(new Slice(Math.max(expected, 1024), falsePositiveRate));
+    }
+
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        long hash = hash(value);
+        for (Slice slice : slices) {
+            if (slice.contains(hash)) {
+                return;
+            }
+        }
+        current().add(hash);
+    }
+
+    /**
+     * @return false if the value was definitely never added.
+     */
+    public boolean mightContain(String value) {
+        if (value == null) {
+            return false;
+        }
+        long hash = hash(value);
+        for (Slice slice : slices) {
+            if (slice.contains(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the false-positive rate implied by how full the slices are.
+     */
+    public double expectedFalsePositiveRate() {
+        double none = 1;
+        for (Slice slice : slices) {
+            none *= 1 - slice.falsePositiveRate();
+        }
+        return 1 - none;
+    }
+
+    public long approximateCount() {
+        long count = 0;
+        for (Slice slice : slices) {
+            count += slice.count.get();
+        }
+        return count;
+    }
+
+    private Slice current() {
+        Slice last = slices.get(slices.size() - 1);
+        if (last.count.get() < last.capacity) {
+            return last;
+        }
+        synchronized (slices) {
+            last = slices.get(slices.size() - 1);
+            if (last.count.get() >= last.capacity) {
+                last = new Slice(last.capacity * GROWTH, last.targetRate * TIGHTENING);
+                slices.add(last);
+            }
+            return last;
+        }
+    }
+
+    // 64-bit FNV-1a followed by a murmur finalizer
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Slice {
+
+        final long capacity;
+        final double targetRate;
+        final long bits;
+        final int hashes;
+        final AtomicLongArray words;
+        final AtomicLong count = new AtomicLong();
+
+        Slice(long capacity, double targetRate) {
+            this.capacity = capacity;
+            this.targetRate = targetRate;
+            double ln2 = Math.log(2);
+            long size = (long) Math.ceil(-capacity * Math.log(targetRate) / (ln2 * ln2));
+            this.bits = Math.max(64, (size + 63) / 64 * 64);
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * ln2));
+            this.words = new AtomicLongArray((int) (bits / 64));
+        }
+
+        void add(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            boolean changed = false;
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old;
+                do {
+                    old = words.get(word);
+                    if ((old & mask) != 0) {
+                        break;
+                    }
+                    changed = true;
+                } while (!words.compareAndSet(word, old, old | mask));
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        boolean contains(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double falsePositiveRate() {
+            double filled = 1 - Math.exp(-(double) hashes * count.get() / bits);
+            return Math.pow(filled, hashes);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.strong.familyauth.Util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * FollowGraph is an in-memory copy of the accepted follow edges, compact
+ * enough to score friends-of-friends for every user on one node.
+ * <p>
+ * User ids are mapped to dense ints on first sight, and each user keeps two
+ * sorted int arrays, the users they follow and the users following them, so
+ * an edge costs 8 bytes per direction and membership is a binary search.
+ * Arrays are never modified in place; a write publishes a new array, so
+ * readers need no locks and always see a consistent adjacency list.
+ */
+public class FollowGraph {
+
+    private static final int[] EMPTY = new int[0];
+
+    public record Candidate(String userId, int mutuals) {
+    }
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private volatile AtomicReferenceArray<int[]> following = new AtomicReferenceArray<>(1024);
+    private volatile AtomicReferenceArray<int[]> followers = new AtomicReferenceArray<>(1024);
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * @return the dense id of a user, or -1 if the user has no edges.
+     */
+    public int idOf(String userId) {
+        Integer id = ids.get(userId);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String keyOf(int id) {
+        return keys.get(id);
+    }
+
+    public int[] following(int id) {
+        return adjacency(following, id);
+    }
+
+    public int[] followers(int id) {
+        return adjacency(followers, id);
+    }
+
+    /**
+     * @return false if the edge already existed.
+     */
+    public synchronized boolean addEdge(String followerId, String followingId) {
+        int follower = intern(followerId);
+        int followee = intern(followingId);
+        if (follower == followee) {
+            return false;
+        }
+        int[] out = following(follower);
+        if (Arrays.binarySearch(out, followee) >= 0) {
+            return false;
+        }
+        following.set(follower, insert(out, followee));
+        followers.set(followee, insert(followers(followee), follower));
+        return true;
+    }
+
+    /**
+     * @return false if there was no such edge.
+     */
+    public synchronized boolean removeEdge(String followerId, String followingId) {
+        int follower = idOf(followerId);
+        int followee = idOf(followingId);
+        if (follower < 0 || followee < 0 || Arrays.binarySearch(following(follower), followee) < 0) {
+            return false;
+        }
+        following.set(follower, remove(following(follower), followee));
+        followers.set(followee, remove(followers(followee), follower));
+        return true;
+    }
+
+    /**
+     * Drops every edge of a user. The dense id stays reserved.
+     */
+    public synchronized void removeUser(String userId) {
+        int id = idOf(userId);
+        if (id < 0) {
+            return;
+        }
+        for (int followee : following(id)) {
+            followers.set(followee, remove(followers(followee), id));
+        }
+        for (int follower : followers(id)) {
+            following.set(follower, remove(following(follower), id));
+        }
+        following.set(id, EMPTY);
+        followers.set(id, EMPTY);
+    }
+
+    /**
+     * Adds many edges at once, sorting each touched adjacency list once instead
+     * of inserting edge by edge. Used for the initial load.
+     */
+    public synchronized void addEdges(List<String[]> edges) {
+        int[] from = new int[edges.size()];
+        int[] to = new int[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            from[i] = intern(edges.get(i)[0]);
+            to[i] = intern(edges.get(i)[1]);
+        }
+        merge(following, from, to);
+        merge(followers, to, from);
+    }
+
+    /**
+     * Scores the users followed by the people this user follows, by how many
+     * of the people this user follows also follow them, and returns the best k.
+     * Users already followed and the user themselves are left out. Ties go to
+     * the candidate with more followers.
+     *
+     * @param maxFanout at most this many followees of each followee are read,
+     *                  bounding the cost for users who follow hubs.
+     */
+    public List<Candidate> suggest(String userId, int k, int maxFanout) {
+        int user = idOf(userId);
+        if (user < 0 || k <= 0) {
+            return List.of();
+        }
+
+        int[] mine = following(user);
+        // Sized to what this user touches, not to the graph
+        Counts counts = new Counts(Math.min(mine.length, 1024) * 16);
+        for (int friend : mine) {
+            int[] theirs = following(friend);
+            int limit = Math.min(theirs.length, maxFanout);
+            for (int i = 0; i < limit; i++) {
+                counts.increment(theirs[i]);
+            }
+        }
+
+        // Min-heap of the best k by (mutuals, followers)
+        int[] heap = new int[Math.min(k, counts.size)];
+        int heapSize = 0;
+        for (int slot = 0; slot < counts.keys.length; slot++) {
+            int candidate = counts.keys[slot] - 1;
+            if (candidate < 0 || candidate == user || Arrays.binarySearch(mine, candidate) >= 0) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize++] = candidate;
+                siftUp(heap, heapSize - 1, counts);
+            } else if (heap.length > 0 && better(candidate, heap[0], counts)) {
+                heap[0] = candidate;
+                siftDown(heap, heapSize, counts);
+            }
+        }
+
+        // Rank on a snapshot, follower counts may change while sorting
+        long[] ranked = new long[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            int candidate = heap[i];
+            long mutuals = Math.min(counts.get(candidate), 0xFFF);
+            long popularity = Math.min(followers(candidate).length, 0xFFFFF);
+            ranked[i] = (mutuals << 51) | (popularity << 31) | candidate;
+        }
+        Arrays.sort(ranked);
+
+        List<Candidate> result = new ArrayList<>(heapSize);
+        for (int i = heapSize - 1; i >= 0; i--) {
+            int candidate = (int) (ranked[i] & Integer.MAX_VALUE);
+            result.add(new Candidate(keyOf(candidate), counts.get(candidate)));
+        }
+        return result;
+    }
+
+    private boolean better(int a, int b, Counts counts) {
+        int mutualsA = counts.get(a);
+        int mutualsB = counts.get(b);
+        if (mutualsA != mutualsB) {
+            return mutualsA > mutualsB;
+        }
+        return followers(a).length > followers(b).length;
+    }
+
+    private void siftUp(int[] heap, int index, Counts counts) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!better(heap[parent], heap[index], counts)) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int size, Counts counts) {
+        int index = 0;
+        while (true) {
+            int left = index * 2 + 1;
+            int right = left + 1;
+            int smallest = index;
+            if (left < size && better(heap[smallest], heap[left], counts)) {
+                smallest = left;
+            }
+            if (right < size && better(heap[smallest], heap[right], counts)) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private int intern(String userId) {
+        Integer id = ids.get(userId);
+        if (id != null) {
+            return id;
+        }
+
+        int next = keys.size();
+        keys.add(userId);
+        if (next >= following.length()) {
+            following = grow(following, next);
+            followers = grow(followers, next);
+        }
+        ids.put(userId, next);
+        return next;
+    }
+
+    private void merge(AtomicReferenceArray<int[]> lists, int[] owners, int[] members) {
+        // Counting sort of the new edges by owner
+        int[] starts = new int[keys.size() + 1];
+        for (int owner : owners) {
+            starts[owner + 1]++;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            starts[i + 1] += starts[i];
+        }
+        int[] grouped = new int[members.length];
+        int[] next = Arrays.copyOf(starts, starts.length);
+        for (int i = 0; i < owners.length; i++) {
+            grouped[next[owners[i]]++] = members[i];
+        }
+
+        for (int owner = 0; owner < keys.size(); owner++) {
+            int from = starts[owner];
+            int to = starts[owner + 1];
+            if (from == to) {
+                continue;
+            }
+            int[] existing = adjacency(lists, owner);
+            int[] combined = Arrays.copyOf(existing, existing.length + to - from);
+            System.arraycopy(grouped, from, combined, existing.length, to - from);
+            Arrays.sort(combined);
+            lists.set(owner, dedupe(combined, owner));
+        }
+    }
+
+    private static int[] dedupe(int[] sorted, int self) {
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] != self && (size == 0 || sorted[size - 1] != sorted[i])) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    private static int[] adjacency(AtomicReferenceArray<int[]> lists, int id) {
+        if (id < 0 || id >= lists.length()) {
+            return EMPTY;
+        }
+        int[] members = lists.get(id);
+        return members == null ? EMPTY : members;
+    }
+
+    private static AtomicReferenceArray<int[]> grow(AtomicReferenceArray<int[]> lists, int needed) {
+        AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(Math.max(needed + 1, lists.length() * 2));
+        for (int i = 0; i < lists.length(); i++) {
+            grown.set(i, lists.get(i));
+        }
+        return grown;
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        int at = -Arrays.binarySearch(sorted, value) - 1;
+        int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(sorted, at, result, at + 1, sorted.length - at);
+        return result;
+    }
+
+    private static int[] remove(int[] sorted, int value) {
+        int at = Arrays.binarySearch(sorted, value);
+        if (at < 0) {
+            return sorted;
+        }
+        int[] result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, at);
+        System.arraycopy(sorted, at + 1, result, at, sorted.length - at - 1);
+        return result;
+    }
+
+    /**
+     * Open-addressed int-to-count map for one scoring call. Keys are stored as
+     * id + 1 so that 0 marks a free slot.
+     */
+    private static final class Counts {
+
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        Counts(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 16) - 1) << 1;
+            keys = new int[capacity];
+            values = new int[capacity];
+        }
+
+        void increment(int id) {
+            int slot = slot(keys, id);
+            if (keys[slot] == 0) {
+                keys[slot] = id + 1;
+                if (++size * 2 > keys.length) {
+                    grow();
+                    slot = slot(keys, id);
+                }
+            }
+            values[slot]++;
+        }
+
+        int get(int id) {
+            int slot = slot(keys, id);
+            return keys[slot] == 0 ? 0 : values[slot];
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int slot = slot(keys, oldKeys[i] - 1);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int slot(int[] keys, int id) {
+            int mask = keys.length - 1;
+            int hash = id * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != 0 && keys[slot] != id + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -10,11 +10,17 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(UserException.class)
     public ResponseEntity<?> handleException(UserException exception) {
+        // Back-pressure statuses reach the client as-is so it knows to retry later
+        HttpStatus status = switch (exception.getStatus()) {
+            case TOO_MANY_REQUESTS, SERVICE_UNAVAILABLE -> exception.getStatus();
+            default -> HttpStatus.CONFLICT;
+        };
+
         UserExcResponse response = new UserExcResponse();
         response.setMessage(exception.getMessage());
-        response.setStatus(HttpStatus.CONFLICT.value());
+        response.setStatus(status.value());
         response.setTimeStamp(System.currentTimeMillis());
-        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+        return new ResponseEntity<>(response, status);
 
     }
 }
\ No newline at end of file
@@ -11,14 +11,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
 import com.strong.familyauth.Model.User;
-import com.strong.familyauth.Repository.TokenRepository;
+import com.strong.familyauth.Security.VerifiedTokenCache;
+import com.strong.familyauth.Security.VerifiedTokenCache.VerifiedToken;
+import com.strong.familyauth.Service.TokenStore;
+import com.strong.familyjwt.JwtVerifier;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
 /**
  * JwtUtil is a utility class for handling JWT (JSON Web Token) operations.
@@ -40,7 +42,23 @@ public class JwtUtil {
     private long refreshTokenExpire;
 
     @Autowired
-    private TokenRepository tokenRepo;
+    private TokenStore tokenStore;
+
+    @Value("${jwt.verifierCacheSize:10000}")
+    private int verifierCacheSize;
+
+    @Autowired
+    private VerifiedTokenCache tokenCache;
+
+    private JwtVerifier verifier;
+
+    /**
+     * Builds the signing key and parser once from the configured secret.
+     */
+    @PostConstruct
+    public void init() {
+        verifier = new JwtVerifier(secretKey, verifierCacheSize);
+    }
 
     /**
      * Extracts the user email (subject) from the given JWT.
@@ -74,13 +92,40 @@ public class JwtUtil {
      * @throws UserException
      */
     public boolean isTokenValid(String token, User user) throws UserException {
-        String email = extractUserEmail(token);
+        return isTokenValid(verifyAccessToken(token), user);
+    }
+
+    /**
+     * Validates an already verified access token against the provided user
+     * details.
+     * 
+     * @param verified the verified access token.
+     * @param user     the user details to validate against.
+     * @return true if the token belongs to the user and is not logged out.
+     */
+    public boolean isTokenValid(VerifiedToken verified, User user) {
+        return !verified.loggedOut() && verified.email().equals(user.getEmail());
+    }
 
-        boolean validToken = tokenRepo
-                .findByAccessToken(token)
-                .map(t -> !t.isLoggedOut())
-                .orElse(false);
-        return (email.equals(user.getEmail())) && !isTokenExpired(token) && validToken;
+    /**
+     * Verifies an access token once and remembers the result until the token
+     * expires, so repeated requests with the same token skip the JWT parse and
+     * the token store lookup.
+     * 
+     * @param token the access token to verify.
+     * @return the verified token with its logged-out state.
+     * @throws UserException if the token is invalid or has expired.
+     */
+    public VerifiedToken verifyAccessToken(String token) throws UserException {
+        VerifiedToken cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = extractAllClaims(token);
+        long generation = tokenCache.generation();
+        boolean loggedOut = !tokenStore.isAccessTokenActive(token, claims.get("id", String.class));
+        return tokenCache.put(token, claims, loggedOut, generation);
     }
 
     /**
@@ -94,10 +139,7 @@ public class JwtUtil {
     public boolean isRefreshValid(String token, User user) throws UserException {
         String email = extractUserEmail(token);
 
-        boolean validRefreshToken = tokenRepo
-                .findByRefreshToken(token)
-                .map(t -> !t.isLoggedOut())
-                .orElse(false);
+        boolean validRefreshToken = tokenStore.isRefreshTokenActive(token, user.getId());
 
         return (email.equals(user.getEmail())) && !isTokenExpired(token) && validRefreshToken;
     }
@@ -153,11 +195,7 @@ public class JwtUtil {
      */
     private Claims extractAllClaims(String token) throws UserException {
         try {
-            return Jwts.parser()
-                    .verifyWith(getSigninKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            return verifier.verify(token);
         } catch (ExpiredJwtException e) {
             throw new UserException(e.getLocalizedMessage(), HttpStatus.I_AM_A_TEAPOT);
         } catch (JwtException e) {
@@ -218,7 +256,6 @@ public class JwtUtil {
      * @return the signing key.
      */
     private SecretKey getSigninKey() {
-        byte[] keyBytes = Decoders.BASE64URL.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return verifier.getSigningKey();
     }
 }
\ No newline at end of file
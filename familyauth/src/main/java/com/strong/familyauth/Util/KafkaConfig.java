@@ -0,0 +1,38 @@
+package com.strong.familyauth.Util;
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * KafkaConfig adds a listener container factory for consumers that every node
+ * runs in its own consumer group, next to Spring Boot's default one.
+ */
+@Configuration
+public class KafkaConfig {
+
+    /**
+     * Provides the container factory for per-node listeners. Offsets are never
+     * committed: such a listener seeks to where its in-memory state was built
+     * from whenever it is assigned a partition, so its group holds no offsets
+     * and the broker removes it as soon as the node leaves instead of keeping
+     * an orphan group per restart.
+     *
+     * @param configurer      applies the spring.kafka.listener settings.
+     * @param consumerFactory the auto-configured consumer factory.
+     * @return the factory, registered as "nodeListenerFactory".
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> nodeListenerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        // Nothing acknowledges, so nothing is committed
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+}
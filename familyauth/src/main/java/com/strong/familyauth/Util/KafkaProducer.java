@@ -1,5 +1,7 @@
 package com.strong.familyauth.Util;
 
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
@@ -7,6 +9,7 @@ import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.strong.familyauth.Model.FollowEvent;
 
 import jakarta.annotation.PostConstruct;
 
@@ -27,6 +30,7 @@ public class KafkaProducer {
             case "CREATE" -> "user-create";
             case "UPDATE" -> "user-update";
             case "DELETE" -> "user-delete";
+            case "DELETE_COMPLETE" -> "user-delete-complete";
             default -> throw new RuntimeException("Unknown type");
         };
         try {
@@ -36,4 +40,21 @@ public class KafkaProducer {
         }
     }
 
+    /**
+     * Publishes a single follow change to user-update. The message is keyed by
+     * the user id so the changes of one user stay in order.
+     *
+     * @param userId   the user who followed or unfollowed.
+     * @param event    the change.
+     * @param memberId the user followed or unfollowed.
+     */
+    public void sendFollowEvent(String userId, FollowEvent event, String memberId) throws UserException {
+        Map<String, String> payload = Map.of("id", userId, "event", event.name(), "memberId", memberId);
+        try {
+            kafkaTemplate.send("user-update", userId, objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new UserException(e.getLocalizedMessage());
+        }
+    }
+
 }
@@ -0,0 +1,260 @@
+package com.strong.familyauth.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.strong.familyauth.Model.User;
+
+/**
+ * UserCodec is the Redis value serializer for cached users. It writes a
+ * compact binary layout and still reads the JSON entries written before it,
+ * so the cache can be switched over without a flush.
+ * <p>
+ * Layout, version 1:
+ * <ol>
+ * <li>version byte (0x01). JSON entries start with '{' and are handed to the
+ * JSON serializer.</li>
+ * <li>flags byte: accountNonExpired, accountNonLocked, enabled, privacy,
+ * credentialsNonExpired.</li>
+ * <li>id, username, name, password, bio, email, phone, photoId, thumbnailId,
+ * website as varint(length + 1) and UTF-8 bytes, 0 meaning null.</li>
+ * <li>followRequests, followers, following as varint(count + 1) and a kind
+ * byte; when every member is an ObjectId the members are 12 raw bytes each,
+ * otherwise strings as above.</li>
+ * <li>authorities as varint(count + 1) and strings.</li>
+ * </ol>
+ * A new field means a new version byte. Entries with an unknown version decode
+ * to null, which callers treat as a cache miss.
+ */
+public class UserCodec implements RedisSerializer<User> {
+
+    public enum Format {
+        JSON, BINARY
+    }
+
+    public static final byte VERSION = 1;
+
+    private static final byte JSON_START = '{';
+    private static final byte KIND_STRINGS = 0;
+    private static final byte KIND_OBJECT_IDS = 1;
+    private static final int OBJECT_ID_BYTES = 12;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final RedisSerializer<User> json;
+    private final Format writeFormat;
+
+    /**
+     * @param json        the serializer for the legacy JSON entries.
+     * @param writeFormat the format new entries are written in.
+     */
+    public UserCodec(RedisSerializer<User> json, Format writeFormat) {
+        this.json = json;
+        this.writeFormat = writeFormat;
+    }
+
+    @Override
+    public byte[] serialize(User user) throws SerializationException {
+        if (user == null) {
+            return new byte[0];
+        }
+        if (writeFormat == Format.JSON) {
+            return json.serialize(user);
+        }
+
+        Writer out = new Writer();
+        out.write(VERSION);
+        out.write((user.isAccountNonExpired() ? 1 : 0)
+                | (user.isAccountNonLocked() ? 2 : 0)
+                | (user.isEnabled() ? 4 : 0)
+                | (user.isPrivacy() ? 8 : 0)
+                | (user.isCredentialsNonExpired() ? 16 : 0));
+
+        out.string(user.getId());
+        out.string(user.getUsername());
+        out.string(user.getName());
+        out.string(user.getPassword());
+        out.string(user.getBio());
+        out.string(user.getEmail());
+        out.string(user.getPhone());
+        out.string(user.getPhotoId());
+        out.string(user.getThumbnailId());
+        out.string(user.getWebsite());
+
+        out.idSet(user.getFollowRequests());
+        out.idSet(user.getFollowers());
+        out.idSet(user.getFollowing());
+
+        Collection<? extends GrantedAuthority> authorities = user.getAuthorities();
+        if (authorities == null) {
+            out.varint(0);
+        } else {
+            out.varint(authorities.size() + 1);
+            for (GrantedAuthority authority : authorities) {
+                out.string(authority.getAuthority());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public User deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == JSON_START) {
+            return json.deserialize(bytes);
+        }
+        if (bytes[0] != VERSION) {
+            return null;
+        }
+
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            User user = new User();
+
+            int flags = in.get();
+            user.setAccountNonExpired((flags & 1) != 0);
+            user.setAccountNonLocked((flags & 2) != 0);
+            user.setEnabled((flags & 4) != 0);
+            user.setPrivacy((flags & 8) != 0);
+            user.setCredentialsNonExpired((flags & 16) != 0);
+
+            user.setId(readString(in));
+            user.setUsername(readString(in));
+            user.setName(readString(in));
+            user.setPassword(readString(in));
+            user.setBio(readString(in));
+            user.setEmail(readString(in));
+            user.setPhone(readString(in));
+            user.setPhotoId(readString(in));
+            user.setThumbnailId(readString(in));
+            user.setWebsite(readString(in));
+
+            user.setFollowRequests(readIdSet(in));
+            user.setFollowers(readIdSet(in));
+            user.setFollowing(readIdSet(in));
+
+            int authorities = readVarint(in) - 1;
+            if (authorities >= 0) {
+                List<SimpleGrantedAuthority> granted = new ArrayList<>(authorities);
+                for (int i = 0; i < authorities; i++) {
+                    granted.add(new SimpleGrantedAuthority(readString(in)));
+                }
+                user.setAuthorities(granted);
+            }
+            return user;
+        } catch (RuntimeException e) {
+            throw new SerializationException("Corrupt cached user", e);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static Set<String> readIdSet(ByteBuffer in) {
+        int count = readVarint(in) - 1;
+        if (count < 0) {
+            return null;
+        }
+
+        byte kind = in.get();
+        Set<String> ids = new HashSet<>(Math.max(16, count * 4 / 3 + 1));
+        byte[] objectId = new byte[OBJECT_ID_BYTES];
+        for (int i = 0; i < count; i++) {
+            if (kind == KIND_OBJECT_IDS) {
+                in.get(objectId);
+                ids.add(HEX.formatHex(objectId));
+            } else {
+                ids.add(readString(in));
+            }
+        }
+        return ids;
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Varint too long");
+    }
+
+    private static boolean isObjectId(String id) {
+        if (id == null || id.length() != OBJECT_ID_BYTES * 2) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(256);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            write(utf8, 0, utf8.length);
+        }
+
+        void idSet(Set<String> ids) {
+            if (ids == null) {
+                varint(0);
+                return;
+            }
+
+            varint(ids.size() + 1);
+            boolean objectIds = ids.stream().allMatch(UserCodec::isObjectId);
+            write(objectIds ? KIND_OBJECT_IDS : KIND_STRINGS);
+            for (String id : ids) {
+                if (objectIds) {
+                    write(HEX.parseHex(id), 0, OBJECT_ID_BYTES);
+                } else {
+                    string(id);
+                }
+            }
+        }
+    }
+}
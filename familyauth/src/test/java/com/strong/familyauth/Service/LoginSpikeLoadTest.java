@@ -0,0 +1,128 @@
+package com.strong.familyauth.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strong.familyauth.Model.User;
+import com.strong.familyauth.Util.UserCodec;
+import com.strong.familyauth.Util.UserException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Replays a login spike against a Tomcat-sized request pool while a steady
+ * stream of profile reads runs, and prints the profile-read latency for three
+ * cases: no spike, BCrypt on the request threads, and BCrypt on the
+ * {@link PasswordHasher} pool. With the hasher the profile-read p99 should
+ * stay close to the no-spike baseline; the logins beyond the queue are shed
+ * with 429 instead.
+ *
+ * Not part of the unit test run. Run with: mvn test-compile exec:java
+ * -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.strong.familyauth.Service.LoginSpikeLoadTest
+ */
+public class LoginSpikeLoadTest {
+
+    private static final int REQUEST_THREADS = 200;
+    private static final int LOGINS = 1000;
+    private static final int PROFILE_READS = 3000;
+    private static final long PROFILE_INTERVAL_MICROS = 1000;
+    private static final long REDIS_ROUND_TRIP_MICROS = 300;
+    private static final int BCRYPT_COST = 8;
+
+    interface Login {
+        boolean check(String raw, String hash) throws UserException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        PasswordEncoder encoder = new BCryptPasswordEncoder(BCRYPT_COST);
+        String hash = encoder.encode("hunter22");
+        UserCodec codec = new UserCodec(new Jackson2JsonRedisSerializer<>(new ObjectMapper(), User.class),
+                UserCodec.Format.BINARY);
+        byte[] cached = codec.serialize(profile());
+
+        // warm up the JIT on both paths
+        run(codec, cached, encoder::matches, hash, 200);
+
+        print("no spike", run(codec, cached, null, hash, 0));
+        print("inline bcrypt", run(codec, cached, encoder::matches, hash, LOGINS));
+
+        PasswordHasher hasher = new PasswordHasher(encoder, new SimpleMeterRegistry(), 0, 64, 2000);
+        print("hashing pool", run(codec, cached, hasher::matches, hash, LOGINS));
+        hasher.shutdown();
+    }
+
+    private static List<Long> run(UserCodec codec, byte[] cached, Login login, String hash, int logins)
+            throws Exception {
+        ExecutorService requestThreads = Executors.newFixedThreadPool(REQUEST_THREADS);
+        List<Future<?>> spike = new ArrayList<>(logins);
+        for (int i = 0; i < logins; i++) {
+            spike.add(requestThreads.submit(() -> {
+                try {
+                    return login.check("hunter22", hash);
+                } catch (UserException e) {
+                    return false; // shed with 429/503
+                }
+            }));
+        }
+
+        List<Future<Long>> reads = new ArrayList<>(PROFILE_READS);
+        long next = System.nanoTime();
+        for (int i = 0; i < PROFILE_READS; i++) {
+            next += TimeUnit.MICROSECONDS.toNanos(PROFILE_INTERVAL_MICROS);
+            LockSupport.parkNanos(next - System.nanoTime());
+            long submittedAt = System.nanoTime();
+            reads.add(requestThreads.submit(() -> {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(REDIS_ROUND_TRIP_MICROS));
+                codec.deserialize(cached);
+                return System.nanoTime() - submittedAt;
+            }));
+        }
+
+        List<Long> latencies = new ArrayList<>(PROFILE_READS);
+        for (Future<Long> read : reads) {
+            latencies.add(read.get());
+        }
+        for (Future<?> request : spike) {
+            request.get();
+        }
+        requestThreads.shutdown();
+        Collections.sort(latencies);
+        return latencies;
+    }
+
+    private static void print(String label, List<Long> sorted) {
+        System.out.printf("%-14s profile read p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms%n", label,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(p * sorted.size()) - 1);
+        return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+    }
+
+    private static User profile() {
+        User user = new User();
+        user.setId("65f1c0ffee00000000000001");
+        user.setUsername("sayeed");
+        user.setName("Sayeed Ajmal");
+        user.setEmail("sayeed@familygram.app");
+        user.setBio("Moments into memories");
+        user.setAccountNonExpired(true);
+        user.setAccountNonLocked(true);
+        user.setEnabled(true);
+        user.setCredentialsNonExpired(true);
+        return user;
+    }
+}
@@ -0,0 +1,69 @@
+package com.strong.familyauth.Service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.strong.familyauth.Util.UserException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PasswordHasherTests {
+
+	@Test
+	void encodesAndMatchesOnThePool() throws Exception {
+		PasswordHasher hasher = new PasswordHasher(new BCryptPasswordEncoder(4), new SimpleMeterRegistry(), 1, 4, 1000);
+
+		String hash = hasher.encode("secret");
+		assertTrue(hasher.matches("secret", hash));
+		assertFalse(hasher.matches("wrong", hash));
+		assertFalse(hasher.matches(null, hash));
+		hasher.shutdown();
+	}
+
+	@Test
+	void rejectsWith429WhenTheQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+			@Override
+			public boolean matches(CharSequence rawPassword, String encodedPassword) {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return true;
+			}
+		};
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		PasswordHasher hasher = new PasswordHasher(blocking, registry, 1, 1, 10_000);
+
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		callers.submit(() -> hasher.matches("a", "x"));
+		started.await();
+		callers.submit(() -> hasher.matches("b", "x"));
+		while (registry.get("auth.password.hash.queue.size").gauge().value() < 1) {
+			Thread.onSpinWait();
+		}
+
+		UserException e = assertThrows(UserException.class, () -> hasher.matches("c", "x"));
+		assertEquals(HttpStatus.TOO_MANY_REQUESTS, e.getStatus());
+		assertEquals(1.0, registry.get("auth.password.hash.shed").tag("reason", "queue_full").counter().count());
+
+		release.countDown();
+		callers.shutdown();
+		hasher.shutdown();
+	}
+}
@@ -0,0 +1,40 @@
+package com.strong.familyauth.Util;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTests {
+
+	@Test
+	void neverMissesAnAddedValue() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+		for (int i = 0; i < 50_000; i++) {
+			filter.add("user" + i);
+		}
+		for (int i = 0; i < 50_000; i++) {
+			assertTrue(filter.mightContain("user" + i));
+		}
+		assertFalse(filter.mightContain(null));
+	}
+
+	@Test
+	void keepsTheFalsePositiveRateBoundedAsItGrows() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+		for (int i = 0; i < 50_000; i++) {
+			filter.add("taken" + i);
+		}
+
+		int falsePositives = 0;
+		int probes = 100_000;
+		for (int i = 0; i < probes; i++) {
+			if (filter.mightContain("free" + i)) {
+				falsePositives++;
+			}
+		}
+		double observed = (double) falsePositives / probes;
+		assertTrue(observed < 0.025, "observed rate " + observed);
+		assertTrue(filter.expectedFalsePositiveRate() < 0.025);
+	}
+}
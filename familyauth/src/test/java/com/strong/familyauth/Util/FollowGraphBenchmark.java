@@ -0,0 +1,141 @@
+package com.strong.familyauth.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.strong.familyauth.Util.FollowGraph.Candidate;
+
+/**
+ * Scores suggestions on a synthetic power-law follow graph: out-degrees and
+ * followee popularity are both Zipf distributed, so a few hub accounts have
+ * a large share of the followers, as in a real social graph. The graph size
+ * and heap used are printed before the run.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.strong.familyauth.Util.FollowGraphBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FollowGraphBenchmark {
+
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int MAX_OUT_DEGREE = 2000;
+
+    @Param({ "100000" })
+    public int users;
+
+    private FollowGraph graph;
+    private String[] userIds;
+    private SplittableRandom random;
+
+    @Setup
+    public void setup() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+
+        graph = build(users, 42);
+        userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = id(i);
+        }
+        random = new SplittableRandom(7);
+
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        long edges = 0;
+        for (int i = 0; i < users; i++) {
+            edges += graph.following(i).length;
+        }
+        System.out.printf("%n%d users, %d edges, ~%d MB heap%n", users, edges, (after - before) >> 20);
+    }
+
+    @Benchmark
+    public List<Candidate> suggestRandomUser() {
+        return graph.suggest(userIds[random.nextInt(users)], 50, 5000);
+    }
+
+    @Benchmark
+    public boolean addAndRemoveEdge() {
+        String follower = userIds[random.nextInt(users)];
+        String followee = userIds[random.nextInt(users)];
+        boolean added = graph.addEdge(follower, followee);
+        if (added) {
+            graph.removeEdge(follower, followee);
+        }
+        return added;
+    }
+
+    static FollowGraph build(int users, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Zipf popularity = new Zipf(users, ZIPF_EXPONENT);
+        Zipf outDegree = new Zipf(MAX_OUT_DEGREE, ZIPF_EXPONENT);
+
+        FollowGraph graph = new FollowGraph();
+        List<String[]> batch = new ArrayList<>();
+        for (int follower = 0; follower < users; follower++) {
+            // Rank 1 is the most likely out-degree; shift so most users follow a few dozen
+            int degree = Math.min(MAX_OUT_DEGREE, 10 + outDegree.sample(random) * 5);
+            for (int j = 0; j < degree; j++) {
+                batch.add(new String[] { id(follower), id(popularity.sample(random) - 1) });
+            }
+            if (batch.size() > 100_000) {
+                graph.addEdges(batch);
+                batch.clear();
+            }
+        }
+        graph.addEdges(batch);
+        return graph;
+    }
+
+    static String id(int i) {
+        return String.format("65f1c0ffee%014x", i);
+    }
+
+    // Inverse-CDF sampler over ranks 1..n
+    static final class Zipf {
+        private final double[] cdf;
+
+        Zipf(int n, double exponent) {
+            cdf = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cdf[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cdf[i] /= sum;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int at = java.util.Arrays.binarySearch(cdf, random.nextDouble());
+            return (at < 0 ? -at - 1 : at) + 1;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FollowGraphBenchmark.class.getSimpleName()).build()).run();
+    }
+}
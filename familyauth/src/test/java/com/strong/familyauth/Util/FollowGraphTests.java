@@ -0,0 +1,67 @@
+package com.strong.familyauth.Util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.strong.familyauth.Util.FollowGraph.Candidate;
+
+class FollowGraphTests {
+
+	@Test
+	void ranksFriendsOfFriendsByMutuals() {
+		FollowGraph graph = new FollowGraph();
+		graph.addEdges(List.of(
+				new String[] { "me", "a" },
+				new String[] { "me", "b" },
+				new String[] { "me", "c" },
+				new String[] { "a", "x" },
+				new String[] { "b", "x" },
+				new String[] { "c", "x" },
+				new String[] { "a", "y" },
+				new String[] { "b", "y" },
+				new String[] { "a", "b" },
+				new String[] { "c", "me" }));
+
+		List<Candidate> suggestions = graph.suggest("me", 10, 100);
+
+		// b is already followed and me is never suggested
+		assertEquals(List.of(new Candidate("x", 3), new Candidate("y", 2)), suggestions);
+	}
+
+	@Test
+	void keepsAdjacencySortedAndDeduplicated() {
+		FollowGraph graph = new FollowGraph();
+		graph.addEdges(List.of(new String[] { "a", "c" }, new String[] { "a", "b" }, new String[] { "a", "c" }));
+		assertTrue(graph.addEdge("a", "d"));
+		assertFalse(graph.addEdge("a", "b"));
+		assertFalse(graph.addEdge("a", "a"));
+
+		// Sorted by dense id, which is first-seen order
+		int[] expected = { graph.idOf("c"), graph.idOf("b"), graph.idOf("d") };
+		assertArrayEquals(expected, graph.following(graph.idOf("a")));
+		assertArrayEquals(new int[] { graph.idOf("a") }, graph.followers(graph.idOf("c")));
+	}
+
+	@Test
+	void removalsUpdateBothDirections() {
+		FollowGraph graph = new FollowGraph();
+		graph.addEdge("me", "a");
+		graph.addEdge("a", "x");
+		graph.addEdge("x", "me");
+		assertEquals(1, graph.suggest("me", 10, 100).size());
+
+		assertTrue(graph.removeEdge("a", "x"));
+		assertFalse(graph.removeEdge("a", "x"));
+		assertTrue(graph.suggest("me", 10, 100).isEmpty());
+
+		graph.removeUser("me");
+		assertEquals(0, graph.followers(graph.idOf("a")).length);
+		assertEquals(0, graph.following(graph.idOf("x")).length);
+	}
+}
@@ -0,0 +1,86 @@
+package com.strong.familyauth.Util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import com.strong.familyauth.Model.User;
+
+/**
+ * Compares the Jackson JSON value serializer with UserCodec for cached users
+ * with growing follower sets. Bytes per entry are printed before the run.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.strong.familyauth.Util.UserCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserCodecBenchmark {
+
+    @Param({ "0", "100", "10000" })
+    public int followers;
+
+    private Jackson2JsonRedisSerializer<User> json;
+    private UserCodec binary;
+    private User user;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setup() {
+        json = UserCodecTests.json();
+        binary = new UserCodec(json, UserCodec.Format.BINARY);
+        user = UserCodecTests.user(followers);
+        jsonBytes = json.serialize(user);
+        binaryBytes = binary.serialize(user);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() {
+        return json.serialize(user);
+    }
+
+    @Benchmark
+    public User jsonDecode() {
+        return json.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return binary.serialize(user);
+    }
+
+    @Benchmark
+    public User binaryDecode() {
+        return binary.deserialize(binaryBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int followers : new int[] { 0, 100, 10000 }) {
+            User user = UserCodecTests.user(followers);
+            Jackson2JsonRedisSerializer<User> json = UserCodecTests.json();
+            System.out.printf("followers=%d json=%d bytes binary=%d bytes%n", followers,
+                    json.serialize(user).length,
+                    new UserCodec(json, UserCodec.Format.BINARY).serialize(user).length);
+        }
+        new Runner(new OptionsBuilder().include(UserCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.strong.familyauth.Util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.strong.familyauth.Model.User;
+
+class UserCodecTests {
+
+	static Jackson2JsonRedisSerializer<User> json() {
+		ObjectMapper objectMapper = new ObjectMapper();
+		objectMapper.registerModule(new JavaTimeModule());
+		return new Jackson2JsonRedisSerializer<>(objectMapper, User.class);
+	}
+
+	static User user(int followers) {
+		User user = new User();
+		user.setId("65f1c0ffee00000000000001");
+		user.setUsername("sayeed");
+		user.setName("Sayeed Ajmal ✨");
+		user.setEmail("sayeed@familygram.app");
+		user.setBio("");
+		user.setPhone("");
+		user.setAccountNonExpired(true);
+		user.setAccountNonLocked(true);
+		user.setEnabled(true);
+		user.setCredentialsNonExpired(true);
+		user.setPrivacy(true);
+		Set<String> ids = new HashSet<>();
+		for (int i = 0; i < followers; i++) {
+			ids.add(String.format("65f1c0ffee%014x", i));
+		}
+		user.setFollowers(ids);
+		user.setFollowing(Set.of("65f1c0ffee00000000000002", "legacy-id"));
+		user.setFollowRequests(new HashSet<>());
+		return user;
+	}
+
+	@Test
+	void binaryRoundTrip() {
+		UserCodec codec = new UserCodec(json(), UserCodec.Format.BINARY);
+		User user = user(100);
+		user.setAuthorities(List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+		byte[] bytes = codec.serialize(user);
+		assertEquals(UserCodec.VERSION, bytes[0]);
+		assertEquals(user, codec.deserialize(bytes));
+	}
+
+	@Test
+	void readsLegacyJson() {
+		User user = user(3);
+		byte[] legacy = json().serialize(user);
+
+		UserCodec codec = new UserCodec(json(), UserCodec.Format.BINARY);
+		assertEquals(user, codec.deserialize(legacy));
+	}
+
+	@Test
+	void binaryIsSmallerThanJson() {
+		User user = user(1000);
+		byte[] binary = new UserCodec(json(), UserCodec.Format.BINARY).serialize(user);
+		byte[] legacy = json().serialize(user);
+		assertTrue(binary.length * 2 < legacy.length);
+	}
+
+	@Test
+	void unknownVersionIsAMiss() {
+		UserCodec codec = new UserCodec(json(), UserCodec.Format.BINARY);
+		byte[] bytes = codec.serialize(user(1));
+		bytes[0] = UserCodec.VERSION + 1;
+		assertNull(codec.deserialize(bytes));
+	}
+}
@@ -5,6 +5,7 @@ import java.util.List;
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import jakarta.annotation.Nonnull;
@@ -20,6 +21,7 @@ public class ChatSession {
     @Id
     private String id;
 
+    @Indexed
     private List<String> participants; // e.g. ["userid1","userid2"]
 
     private List<String> nodes; // e.g. ["chat_userid1_userid2_1", "chat_userid1_userid2_2"]
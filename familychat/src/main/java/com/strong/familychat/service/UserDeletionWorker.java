@@ -0,0 +1,115 @@
+package com.strong.familychat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strong.familychat.model.ChatMessageNode;
+import com.strong.familychat.model.ChatSession;
+import com.strong.familyjwt.deletion.AbstractUserDeletionWorker;
+import com.strong.familyjwt.deletion.UserDeletion;
+
+/**
+ * Purges the chat sessions of deleted users, with their message nodes.
+ * {@code chat.deletion.batchSize} sessions are deleted per batch, with
+ * {@code chat.deletion.pauseMs} after each batch and after every batch of
+ * nodes of a long chat. The finished purge is reported on
+ * user-delete-complete.
+ */
+@Service
+public class UserDeletionWorker extends AbstractUserDeletionWorker {
+
+    public static final String SERVICE = "familychat";
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Predicate<UserDeletion>> steps = List.of(this::purgeSessions);
+
+    public UserDeletionWorker(@Value("${chat.deletion.batchSize:200}") int batchSize,
+            @Value("${chat.deletion.pauseMs:200}") long pauseMs,
+            @Value("${chat.deletion.pollMs:5000}") long pollMs) {
+        super(SERVICE, batchSize, pauseMs, pollMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> entity : List.of(UserDeletion.class, ChatSession.class)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            resolver.resolveIndexFor(entity).forEach(indexOps::ensureIndex);
+        }
+    }
+
+    @KafkaListener(topics = "user-delete", groupId = "chat-deletion")
+    public void consumeUserDeletes(String message) throws JsonProcessingException {
+        Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<>() {});
+        if (payload.get("id") instanceof String userId) {
+            enqueue(userId);
+        }
+    }
+
+    @Override
+    protected List<Predicate<UserDeletion>> steps() {
+        return steps;
+    }
+
+    @Override
+    protected void reportDone(UserDeletion deletion) {
+        try {
+            kafkaTemplate.send("user-delete-complete", objectMapper.writeValueAsString(
+                    Map.of("id", deletion.getUserId(), "service", SERVICE, "deleted", deletion.getDeleted())));
+        } catch (JsonProcessingException e) {
+            // The entry itself already records the purge as done
+        }
+    }
+
+    /**
+     * Deletes a batch of the user's sessions. The nodes of a long chat are
+     * deleted in batches of their own.
+     */
+    private boolean purgeSessions(UserDeletion deletion) {
+        Query query = Query.query(Criteria.where("participants").is(deletion.getUserId())).limit(batchSize());
+        query.fields().include("nodes");
+        List<ChatSession> sessions = mongoTemplate.find(query, ChatSession.class);
+
+        List<String> sessionIds = new ArrayList<>(sessions.size());
+        for (ChatSession session : sessions) {
+            List<String> nodes = session.getNodes() == null ? List.of() : session.getNodes();
+            for (int from = 0; from < nodes.size(); from += batchSize()) {
+                List<String> batch = nodes.subList(from, Math.min(from + batchSize(), nodes.size()));
+                long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(batch)),
+                        ChatMessageNode.class).getDeletedCount();
+                deletion.setDeleted(deletion.getDeleted() + removed);
+                if (nodes.size() > batchSize() && !pause()) {
+                    return true;
+                }
+            }
+            sessionIds.add(session.getId());
+        }
+
+        if (!sessionIds.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(sessionIds)), ChatSession.class);
+        }
+        return count(deletion, sessionIds.size());
+    }
+}
@@ -1,13 +1,12 @@
 package com.strong.familyfeed.Model;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.springframework.data.annotation.Id;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.mongodb.lang.NonNull;
 
 import lombok.AllArgsConstructor;
@@ -17,6 +16,7 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @Data
 @AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class PostWithUser {
 
     // User details
@@ -41,8 +41,11 @@ public class PostWithUser {
     /** Location with the post */
     private String location;
 
-    /** Set of user IDs who have liked this post */
-    private Set<String> likes = new HashSet<>();
+    /** Number of users who have liked this post */
+    private long likeCount;
+
+    /** Whether the viewing user has liked this post */
+    private boolean likedByMe;
 
     /** Timestamp when the post was created */
     @NonNull
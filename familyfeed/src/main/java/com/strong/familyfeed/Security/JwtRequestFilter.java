@@ -46,28 +46,24 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             try {
-                String email = jwtUtil.extractUserEmail(token);
+                Claims claims = jwtUtil.extractClaims(token);
+                String email = claims.getSubject();
 
                 if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    if (jwtUtil.validateToken(token)) {
-                        Claims claims = jwtUtil.extractClaims(token);
+                    @SuppressWarnings("unchecked")
+                    Collection<SimpleGrantedAuthority> authorities = (Collection<SimpleGrantedAuthority>) claims
+                            .get("authorities", Collection.class);
 
-                        @SuppressWarnings("unchecked")
-                        Collection<SimpleGrantedAuthority> authorities = (Collection<SimpleGrantedAuthority>) claims
-                                .get("authorities", Collection.class);
-
-                        if (authorities == null) {
-                            authorities = Collections.emptyList(); // Ensure authorities is never null
-                        }
-
-                        UserDetails userDetails = new User(email, "", authorities);
-
-                        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                    if (authorities == null) {
+                        authorities = Collections.emptyList(); // Ensure authorities is never null
                     }
 
+                    UserDetails userDetails = new User(email, "", authorities);
+
+                    UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
                 }
             } catch (Exception e) {
                 response.setStatus(HttpServletResponse.SC_NOT_ACCEPTABLE);
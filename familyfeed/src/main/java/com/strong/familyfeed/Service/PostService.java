@@ -63,7 +63,8 @@ public class PostService {
                                     post.getCaption(),
                                     post.getMediaIds() != null ? post.getMediaIds() : List.of(),
                                     post.getLocation(),
-                                    post.getLikes() != null ? post.getLikes() : new HashSet<>(),
+                                    post.getLikeCount() != null ? post.getLikeCount().longValue() : 0,
+                                    post.getLikes() != null && post.getLikes().contains(mineId),
                                     post.getCreatedAt()));
                 })
                 .collect(Collectors.collectingAndThen(
@@ -0,0 +1,97 @@
+package com.strong.familyjwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * JwtVerifier verifies FamilyGram access tokens with a signing key and parser
+ * that are built once, instead of decoding the secret and building a new
+ * parser for every call.
+ * Verified claims are kept in a bounded LRU keyed by the SHA-256 digest of the
+ * token, so a token that is presented again is not HMAC-verified a second
+ * time until it expires.
+ * The cache only saves the signature check; it never makes a token valid that
+ * the parser would reject. Revocation is not a property of the signature and
+ * is checked by familyauth against its token store, not here.
+ */
+public class JwtVerifier {
+
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final Map<String, Claims> verified;
+
+    /**
+     * Creates a verifier for the given secret.
+     *
+     * @param base64UrlSecret the Base64URL encoded HMAC secret shared by the
+     *                        services.
+     * @param maxEntries      the number of verified tokens to remember, 0
+     *                        disables the cache.
+     */
+    public JwtVerifier(String base64UrlSecret, int maxEntries) {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(base64UrlSecret));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verified = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Verifies the signature and expiry of a token and returns its claims.
+     *
+     * @param token the compact JWT.
+     * @return the verified claims.
+     * @throws JwtException if the token is malformed, wrongly signed or expired.
+     */
+    public Claims verify(String token) throws JwtException {
+        String digest = digest(token);
+
+        Claims claims = verified.get(digest);
+        if (claims != null) {
+            if (claims.getExpiration() == null || claims.getExpiration().getTime() > System.currentTimeMillis()) {
+                return claims;
+            }
+            // Expired since it was cached, let the parser raise ExpiredJwtException
+            verified.remove(digest);
+        }
+
+        claims = parser.parseSignedClaims(token).getPayload();
+        verified.put(digest, claims);
+        return claims;
+    }
+
+    /**
+     * Provides the signing key, for services that also issue tokens.
+     *
+     * @return the HMAC signing key.
+     */
+    public SecretKey getSigningKey() {
+        return signingKey;
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest(token.getBytes(StandardCharsets.UTF_8));
+            return new String(hash, StandardCharsets.ISO_8859_1);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.strong.familyjwt.deletion;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.strong.familyjwt.deletion.UserDeletion.Status;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Drains the user_deletions entries of one service at a fixed rate.
+ * <p>
+ * A user-delete event only records a PENDING entry through
+ * {@link #enqueue(String)}. One dedicated thread, apart from the shared
+ * scheduler, claims entries one at a time and works through the service's
+ * {@link #steps()}, one batch per call, sleeping {@code pauseMs} after every
+ * batch, so a heavy account never puts more than one batch at a time on
+ * Mongo. The step and the count deleted are checkpointed after every batch;
+ * an entry left RUNNING by a crashed node is reclaimed after five minutes and
+ * resumes at that step. When all steps are done the entry is marked DONE and
+ * {@link #reportDone(UserDeletion)} is called.
+ */
+public abstract class AbstractUserDeletionWorker {
+
+    private static final Duration STUCK_AFTER = Duration.ofMinutes(5);
+
+    @Autowired
+    protected MongoTemplate mongoTemplate;
+
+    private final String service;
+    private final int batchSize;
+    private final long pauseMs;
+    private final long pollMs;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "user-deletion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected AbstractUserDeletionWorker(String service, int batchSize, long pauseMs, long pollMs) {
+        this.service = service;
+        this.batchSize = batchSize;
+        this.pauseMs = pauseMs;
+        this.pollMs = pollMs;
+    }
+
+    /**
+     * Each step purges one batch, adds what it removed to the entry's deleted
+     * count and returns true while there is more to do.
+     */
+    protected abstract List<Predicate<UserDeletion>> steps();
+
+    /**
+     * Announces a finished purge. The entry itself already records it as done.
+     */
+    protected abstract void reportDone(UserDeletion deletion);
+
+    protected int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Records that a user's data has to be purged. Safe to call more than once.
+     */
+    public void enqueue(String userId) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(service + ":" + userId)),
+                new Update()
+                        .setOnInsert("userId", userId)
+                        .setOnInsert("service", service)
+                        .setOnInsert("status", Status.PENDING)
+                        .setOnInsert("step", 0)
+                        .setOnInsert("deleted", 0L)
+                        .setOnInsert("createdAt", Instant.now()),
+                UserDeletion.class);
+    }
+
+    /**
+     * Starts the purge on its own thread. It sleeps between batches, which on
+     * the shared scheduler thread would hold up every other scheduled job.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                purge();
+            } catch (RuntimeException e) {
+                // Could not claim; tried again on the next poll
+                e.printStackTrace();
+            }
+        }, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Adds a batch to the entry's deleted count.
+     *
+     * @return true if the batch was full, so there may be more.
+     */
+    protected boolean count(UserDeletion deletion, long purged) {
+        deletion.setDeleted(deletion.getDeleted() + purged);
+        return purged >= batchSize;
+    }
+
+    /**
+     * Sleeps pauseMs. Steps that split a batch further call this between the
+     * parts.
+     *
+     * @return false if the thread was interrupted.
+     */
+    protected boolean pause() {
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void purge() {
+        UserDeletion deletion;
+        while ((deletion = claim()) != null) {
+            try {
+                if (!run(deletion)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // Left RUNNING, so it is picked up again once the claim goes stale
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(deletion.getId())),
+                        new Update().set("lastError", String.valueOf(e.getMessage())), UserDeletion.class);
+                return;
+            }
+        }
+    }
+
+    private UserDeletion claim() {
+        Instant now = Instant.now();
+        Query due = Query.query(Criteria.where("service").is(service).orOperator(
+                Criteria.where("status").is(Status.PENDING),
+                Criteria.where("status").is(Status.RUNNING).and("claimedAt").lte(now.minus(STUCK_AFTER))));
+        Update claim = new Update().set("status", Status.RUNNING).set("claimedAt", now);
+        return mongoTemplate.findAndModify(due, claim, FindAndModifyOptions.options().returnNew(true),
+                UserDeletion.class);
+    }
+
+    /**
+     * @return false if the thread was interrupted before the purge finished.
+     */
+    private boolean run(UserDeletion deletion) {
+        List<Predicate<UserDeletion>> steps = steps();
+        for (int step = deletion.getStep(); step < steps.size(); step++) {
+            boolean more;
+            do {
+                more = steps.get(step).test(deletion);
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(deletion.getId())),
+                        new Update().set("step", more ? step : step + 1)
+                                .set("deleted", deletion.getDeleted()).set("claimedAt", Instant.now()),
+                        UserDeletion.class);
+                if (!pause()) {
+                    return false;
+                }
+            } while (more);
+        }
+
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(deletion.getId())),
+                new Update().set("status", Status.DONE).set("completedAt", Instant.now()),
+                UserDeletion.class);
+        reportDone(deletion);
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package com.strong.familyjwt.deletion;
+
+import java.time.Instant;
+import java.util.Set;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Progress of purging one deleted user's data from one service. Every service
+ * keeps its own entries in the "user_deletions" collection, keyed
+ * {@code {service}:{userId}}, and checkpoints the step it is on after each
+ * batch so a crashed purge resumes where it stopped. The familyauth entry also
+ * collects the completion reports of the other services. Finished entries
+ * expire after 30 days.
+ */
+@Document(collection = "user_deletions")
+@CompoundIndex(name = "service_status_claimed", def = "{'service': 1, 'status': 1, 'claimedAt': 1}")
+public class UserDeletion {
+
+    public enum Status {
+        PENDING, RUNNING, DONE
+    }
+
+    @Id
+    private String id;
+    private String userId;
+    private String service;
+    private Status status;
+    private int step;
+    private long deleted;
+    private Instant createdAt;
+    private Instant claimedAt;
+    private String lastError;
+    private Set<String> reports;
+
+    @Indexed(expireAfterSeconds = 30 * 24 * 3600)
+    private Instant completedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public void setService(String service) {
+        this.service = service;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    public void setStep(int step) {
+        this.step = step;
+    }
+
+    public long getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(long deleted) {
+        this.deleted = deleted;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(Instant claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Set<String> getReports() {
+        return reports;
+    }
+
+    public void setReports(Set<String> reports) {
+        this.reports = reports;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
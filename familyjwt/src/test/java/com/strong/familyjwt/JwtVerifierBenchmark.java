@@ -0,0 +1,92 @@
+package com.strong.familyjwt;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Compares the per-request cost of the old JwtRequestFilter path (decode the
+ * secret, build a parser and verify the token three times) with JwtVerifier.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.strong.familyjwt.JwtVerifierBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifierBenchmark {
+
+    private String token;
+    private JwtVerifier cached;
+    private JwtVerifier uncached;
+
+    @Setup
+    public void setup() {
+        cached = new JwtVerifier(JwtVerifierTests.SECRET, 10_000);
+        uncached = new JwtVerifier(JwtVerifierTests.SECRET, 0);
+        token = Jwts.builder()
+                .subject("user@familygram.app")
+                .claim("id", "65f1c0ffee")
+                .claim("username", "familygram")
+                .claim("privacy", false)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(cached.getSigningKey())
+                .compact();
+    }
+
+    /** extractUserEmail, validateToken and extractClaims as the filters did it. */
+    @Benchmark
+    public Claims legacyFilterPath() {
+        legacyParse(token).getSubject();
+        legacyParse(token).getExpiration().after(new Date());
+        return legacyParse(token);
+    }
+
+    /** A single verification with the precompiled key and parser. */
+    @Benchmark
+    public Claims precompiledParser() {
+        return uncached.verify(token);
+    }
+
+    /** A repeat token answered from the LRU of verified claims. */
+    @Benchmark
+    public Claims cachedVerifier() {
+        return cached.verify(token);
+    }
+
+    private static Claims legacyParse(String token) {
+        byte[] keyBytes = Decoders.BASE64URL.decode(JwtVerifierTests.SECRET);
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+        return Jwts.parser().verifyWith(key).build().parseSignedClaims(token).getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package com.strong.familyjwt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.SignatureException;
+
+class JwtVerifierTests {
+
+	static final String SECRET = "c2VjcmV0LWtleS1mb3ItZmFtaWx5Z3JhbS10ZXN0cy0wMTIzNDU2Nzg5";
+
+	JwtVerifier verifier = new JwtVerifier(SECRET, 16);
+
+	String token(long ttlMillis) {
+		return Jwts.builder()
+				.subject("user@familygram.app")
+				.claim("id", "42")
+				.issuedAt(new Date())
+				.expiration(new Date(System.currentTimeMillis() + ttlMillis))
+				.signWith(verifier.getSigningKey())
+				.compact();
+	}
+
+	@Test
+	void verifiesOnceAndReusesClaims() {
+		String token = token(60_000);
+		Claims first = verifier.verify(token);
+		assertEquals("42", first.get("id", String.class));
+		assertSame(first, verifier.verify(token));
+	}
+
+	@Test
+	void rejectsExpiredToken() {
+		assertThrows(ExpiredJwtException.class, () -> verifier.verify(token(-1_000)));
+	}
+
+	@Test
+	void rejectsTokenSignedWithOtherKey() {
+		JwtVerifier other = new JwtVerifier("b3RoZXItc2VjcmV0LWtleS1mb3ItZmFtaWx5Z3JhbS0wMTIzNDU2Nzg5", 16);
+		String token = Jwts.builder().subject("x").signWith(other.getSigningKey()).compact();
+		assertThrows(SignatureException.class, () -> verifier.verify(token));
+	}
+}
@@ -3,6 +3,7 @@ package com.strong.familynotification.Model;
 import java.time.Instant;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -20,7 +21,9 @@ public class Notification {
     private String message; // Custom message (only for likes/comments)
 
     private String senderUsername; // The user who performed the action
+    @Indexed
     private String receiverId;
+    @Indexed
     private String senderId;
     private String postId; // If related to a post, otherwise null
     private String postThumbId; // The thumbnail of the post (if applicable)
@@ -1,10 +1,13 @@
 package com.strong.familynotification.Service;
 
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedDeque;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -22,20 +25,40 @@ public class StorageService {
     private MongoTemplate mongoTemplate;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final List<String> buffer = new CopyOnWriteArrayList<>();
+    private final Deque<String> buffer = new ConcurrentLinkedDeque<>();
 
     public void addToBuffer(String json) {
         buffer.add(json);
     }
 
+    /**
+     * Applies every buffered user event in one ordered bulk write of $set field
+     * patches. Follow deltas ({"id", "event", "memberId"}) share the topic but
+     * are skipped: follow sets are kept in familyauth's follows collection, not
+     * on the user document.
+     * If the write fails the batch goes back to the head of the buffer, ahead
+     * of anything that arrived since, and is retried on the next flush; an
+     * ordered replay of $set lands in the same state.
+     */
     public void flushToMongo() throws JsonProcessingException {
         if (buffer.isEmpty()) {
             // System.out.println("Buffer is empty, nothing to flush.");
             return;
         }
 
-        for (String json : buffer) {
-            Map<String, Object> updates = objectMapper.readValue(json, new TypeReference<>() {});
+        // Ordered, so patches of the same field apply in arrival order
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, "users");
+        List<String> batch = new ArrayList<>();
+
+        String json;
+        while ((json = buffer.poll()) != null) {
+            Map<String, Object> updates;
+            try {
+                updates = objectMapper.readValue(json, new TypeReference<>() {});
+            } catch (JsonProcessingException e) {
+                // Drop the malformed message rather than the rest of the batch
+                continue;
+            }
             String id = (String) updates.remove("id");
 
             if (id == null) {
@@ -43,21 +66,32 @@ public class StorageService {
                 continue;
             }
 
-            Update update = new Update();
-            for (Map.Entry<String, Object> entry : updates.entrySet()) {
-                update.set(entry.getKey(), entry.getValue());
+            if (updates.containsKey("event")) {
+                continue;
             }
 
-            mongoTemplate.updateFirst(
-                Query.query(Criteria.where("_id").is(id)),
-                update,
-                "users" // 👈 or use User.class instead
-            );
+            bulk.updateOne(Query.query(Criteria.where("_id").is(id)), fieldUpdate(updates));
+            batch.add(json);
+        }
 
-            // System.out.println("✅ Patched user: " + id + " with fields: " + updates.keySet());
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                buffer.addFirst(batch.get(i));
+            }
+            throw e;
         }
+    }
 
-        buffer.clear();
-        // System.out.println("Buffer cleared.");
+    private Update fieldUpdate(Map<String, Object> updates) {
+        Update update = new Update();
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            update.set(entry.getKey(), entry.getValue());
+        }
+        return update;
     }
 }
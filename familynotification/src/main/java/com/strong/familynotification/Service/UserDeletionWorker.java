@@ -0,0 +1,103 @@
+package com.strong.familynotification.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strong.familyjwt.deletion.AbstractUserDeletionWorker;
+import com.strong.familyjwt.deletion.UserDeletion;
+import com.strong.familynotification.Model.Notification;
+
+/**
+ * Purges the notifications sent to or by deleted users,
+ * {@code notification.deletion.batchSize} per batch with
+ * {@code notification.deletion.pauseMs} after each, so a heavy account is
+ * drained at a fixed rate. The finished purge is reported on
+ * user-delete-complete.
+ */
+@Service
+public class UserDeletionWorker extends AbstractUserDeletionWorker {
+
+    public static final String SERVICE = "familynotification";
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Predicate<UserDeletion>> steps = List.of(
+            deletion -> count(deletion, deleteBatch(Query.query(new Criteria().orOperator(
+                    Criteria.where("receiverId").is(deletion.getUserId()),
+                    Criteria.where("senderId").is(deletion.getUserId()))))));
+
+    public UserDeletionWorker(@Value("${notification.deletion.batchSize:500}") int batchSize,
+            @Value("${notification.deletion.pauseMs:200}") long pauseMs,
+            @Value("${notification.deletion.pollMs:5000}") long pollMs) {
+        super(SERVICE, batchSize, pauseMs, pollMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> entity : List.of(UserDeletion.class, Notification.class)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            resolver.resolveIndexFor(entity).forEach(indexOps::ensureIndex);
+        }
+    }
+
+    @KafkaListener(topics = "user-delete", groupId = "notification-deletion")
+    public void consumeUserDeletes(String message, Acknowledgment ack) throws JsonProcessingException {
+        Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<>() {});
+        if (payload.get("id") instanceof String userId) {
+            enqueue(userId);
+        }
+        ack.acknowledge();
+    }
+
+    @Override
+    protected List<Predicate<UserDeletion>> steps() {
+        return steps;
+    }
+
+    @Override
+    protected void reportDone(UserDeletion deletion) {
+        try {
+            kafkaTemplate.send("user-delete-complete", objectMapper.writeValueAsString(
+                    Map.of("id", deletion.getUserId(), "service", SERVICE, "deleted", deletion.getDeleted())));
+        } catch (JsonProcessingException e) {
+            // The entry itself already records the purge as done
+        }
+    }
+
+    private int deleteBatch(Query filter) {
+        Query query = Query.of(filter).limit(batchSize());
+        query.fields().include("_id");
+        List<Object> ids = mongoTemplate.find(query, Document.class, "notifications").stream()
+                .map(document -> document.get("_id"))
+                .toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Notification.class);
+        return ids.size();
+    }
+}
@@ -1,6 +1,7 @@
 package com.strong.familypost.Controller;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.InputStreamResource;
@@ -22,7 +23,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import com.strong.familypost.Model.Comment;
+import com.strong.familypost.Model.GridPost;
+import com.strong.familypost.Model.LikeState;
 import com.strong.familypost.Model.Post;
+import com.strong.familypost.Model.PostPage;
 import com.strong.familypost.Service.CommentService;
 import com.strong.familypost.Service.PostService;
 import com.strong.familypost.Service.StorageService;
@@ -120,7 +124,9 @@ public class PostController {
      * @param id ID of the user whose private posts are to be retrieved
      * @return ResponseEntity containing list of private posts
      * @throws PostException if there's an error retrieving posts
+     * @deprecated returns every post of the user; use {@code /posts/timeline}
      */
+    @Deprecated
     @GetMapping()
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<ResponseWrapper<List<Post>>> getAllPosts(@RequestParam("userId") String userId)
@@ -129,6 +135,63 @@ public class PostController {
         return ResponseEntity.ok(new ResponseWrapper<>(200, "Posts retrieved successfully", posts));
     }
 
+    /**
+     * Retrieves one page of a user's posts, newest first.
+     * 
+     * @param userId ID of the user whose posts are to be retrieved
+     * @param cursor nextCursor of the previous page; omitted for the first page
+     * @param size   number of posts per page
+     * @return ResponseEntity containing the page of posts and the next cursor
+     * @throws PostException if the cursor or page size is invalid
+     */
+    @GetMapping("/timeline")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<PostPage<Post>>> getUserTimeline(
+            @RequestParam("userId") String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "12") int size) throws PostException {
+        PostPage<Post> page = postService.getUserTimeline(userId, cursor, size);
+        return ResponseEntity.ok(new ResponseWrapper<>(200, "Posts retrieved successfully", page));
+    }
+
+    /**
+     * Retrieves one page of a user's profile grid, newest first: for each post
+     * only its ID, first thumbnail, media count and like count.
+     * 
+     * @param userId ID of the user whose grid is to be retrieved
+     * @param cursor nextCursor of the previous page; omitted for the first page
+     * @param size   number of posts per page
+     * @return ResponseEntity containing the page of grid posts and the next cursor
+     * @throws PostException if the cursor or page size is invalid
+     */
+    @GetMapping("/grid")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<PostPage<GridPost>>> getUserGrid(
+            @RequestParam("userId") String userId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "24") int size) throws PostException {
+        PostPage<GridPost> page = postService.getUserGrid(userId, cursor, size);
+        return ResponseEntity.ok(new ResponseWrapper<>(200, "Grid retrieved successfully", page));
+    }
+
+    /**
+     * Retrieves, for a page of posts, whether the user likes each one and its
+     * like count, so clients can render like hearts without the liker sets.
+     * 
+     * @param userId  ID of the viewing user
+     * @param postIds IDs of the posts on the page
+     * @return ResponseEntity containing the like state per post ID
+     * @throws PostException if too many posts are requested
+     */
+    @GetMapping("/likes")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<ResponseWrapper<Map<String, LikeState>>> getLikeStates(
+            @RequestParam("userId") String userId,
+            @RequestParam("postIds") List<String> postIds) throws PostException {
+        Map<String, LikeState> states = postService.getLikeStates(userId, postIds);
+        return ResponseEntity.ok(new ResponseWrapper<>(200, "Like states retrieved successfully", states));
+    }
+
     /**
      * Retrieves a specific post by its ID.
      * 
@@ -170,18 +233,19 @@ public class PostController {
      * 
      * @param postId ID of the post to toggle like
      * @param id     ID of the user toggling the like
-     * @return ResponseEntity containing updated like count
+     * @return ResponseEntity containing the new like state and like count
      */
     @PostMapping("/{postId}/toggle-like")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<ResponseWrapper<Boolean>> toggleLike(
+    public ResponseEntity<ResponseWrapper<LikeState>> toggleLike(
             @PathVariable String postId,
             @RequestParam("userId") String userId) {
         try {
-            boolean liked = postService.toggleLike(postId, userId);
-            return ResponseEntity.ok(new ResponseWrapper<>(200, "Like toggled successfully", liked));
+            LikeState state = postService.toggleLike(postId, userId);
+            return ResponseEntity.ok(new ResponseWrapper<>(200, "Like toggled successfully", state));
         } catch (PostException e) {
-            return ResponseEntity.badRequest().body(new ResponseWrapper<>(400, "Error toggling like", false));
+            return ResponseEntity.status(e.getStatus())
+                    .body(new ResponseWrapper<>(e.getStatus().value(), e.getMessage(), null));
         }
     }
 }
@@ -3,6 +3,7 @@ package com.strong.familypost.Model;
 import java.time.LocalDateTime;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -33,10 +34,12 @@ public class Comment {
 
     /** ID of the post this comment belongs to */
     @NonNull
+    @Indexed
     private String postId;
 
     /** ID of the user who created this comment */
     @NonNull
+    @Indexed
     private String userId;
 
     /** username of the user who created this comment */
@@ -0,0 +1,23 @@
+package com.strong.familypost.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A post as shown in the profile grid: just enough to draw its tile.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GridPost {
+
+    private String id;
+
+    /** First thumbnail of the post, null if it has no media */
+    private String thumbnailId;
+
+    private int mediaCount;
+
+    private long likeCount;
+}
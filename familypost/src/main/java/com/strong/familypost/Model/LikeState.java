@@ -0,0 +1,19 @@
+package com.strong.familypost.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of a like toggle: whether the user now likes the post and the post's
+ * like count after the toggle.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeState {
+
+    private boolean liked;
+
+    private long likeCount;
+}
@@ -7,6 +7,8 @@ import java.util.List;
 import java.util.Set;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
@@ -25,6 +27,7 @@ import lombok.NoArgsConstructor;
  * @since 2025
  */
 @Document(collection = "posts")
+@CompoundIndex(name = "user_created", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -52,6 +55,7 @@ public class Post {
     private String location;
 
     /** Set of user IDs who have liked this post */
+    @Indexed
     private Set<String> likes = new HashSet<>();
 
     private BigInteger likeCount;
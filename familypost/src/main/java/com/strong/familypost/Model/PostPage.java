@@ -0,0 +1,21 @@
+package com.strong.familypost.Model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of a user's posts, newest first, as full posts or grid tiles. {@code nextCursor} is passed back
+ * to fetch the following page and is null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostPage<T> {
+
+    private List<T> posts;
+
+    private String nextCursor;
+}
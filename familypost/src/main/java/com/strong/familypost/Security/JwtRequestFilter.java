@@ -44,31 +44,29 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
             try {
-                String email = jwtUtil.extractUserEmail(token);
+                Claims claims = jwtUtil.extractClaims(token);
+                String email = claims.getSubject();
 
                 if (email != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    if (jwtUtil.validateToken(token)) {
-                        Claims claims = jwtUtil.extractClaims(token);
-                        String id = claims.get("id", String.class);
-                        String username = claims.get("username", String.class);
-                        String name = claims.get("name", String.class);
-                        String phone = claims.get("phone", String.class);
-                        boolean privacy = claims.get("privacy", Boolean.class);
-                        boolean isEnabled = claims.get("enabled", Boolean.class);
-                        boolean isAccountNonLocked = claims.get("accountNonLocked", Boolean.class);
-                        boolean isAccountNonExpired = claims.get("accountNonExpired", Boolean.class);
-                        @SuppressWarnings("unchecked")
-                        Collection<SimpleGrantedAuthority> authorities = (Collection<SimpleGrantedAuthority>) claims
-                                .get("authorities", Collection.class);
+                    String id = claims.get("id", String.class);
+                    String username = claims.get("username", String.class);
+                    String name = claims.get("name", String.class);
+                    String phone = claims.get("phone", String.class);
+                    boolean privacy = claims.get("privacy", Boolean.class);
+                    boolean isEnabled = claims.get("enabled", Boolean.class);
+                    boolean isAccountNonLocked = claims.get("accountNonLocked", Boolean.class);
+                    boolean isAccountNonExpired = claims.get("accountNonExpired", Boolean.class);
+                    @SuppressWarnings("unchecked")
+                    Collection<SimpleGrantedAuthority> authorities = (Collection<SimpleGrantedAuthority>) claims
+                            .get("authorities", Collection.class);
 
-                        User userDetails = new User(
-                                email, id, username, name, phone, privacy, isEnabled, isAccountNonLocked,
-                                isAccountNonExpired, authorities);
-                        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                    }
+                    User userDetails = new User(
+                            email, id, username, name, phone, privacy, isEnabled, isAccountNonLocked,
+                            isAccountNonExpired, authorities);
+                    UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                            userDetails, null, userDetails.getAuthorities());
+                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
                 }
             } catch (Exception e) {
                 response.setStatus(HttpServletResponse.SC_NOT_ACCEPTABLE);
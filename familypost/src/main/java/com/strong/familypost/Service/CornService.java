@@ -1,99 +1,151 @@
 package com.strong.familypost.Service;
 
 import java.math.BigInteger;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.strong.familypost.Model.Post;
-import com.strong.familypost.Repository.PostRepo;
 
 import lombok.RequiredArgsConstructor;
 
+/**
+ * Writes the like sets kept in Redis back to Mongo.
+ * <p>
+ * post_like:{postId} is the live set of user ids liking a post. It is loaded
+ * from Mongo the first time a post is liked or unliked and always holds the
+ * {@link #LOADED} marker, so a post whose likes were all taken back still has
+ * a set. Every toggle stores the new count in {@link #COUNTS_KEY} and adds the
+ * post id to {@link #DIRTY_KEY}.
+ * <p>
+ * A sync swaps the dirty set out with one RENAME, so likes arriving during the
+ * sync mark a fresh dirty set instead of being lost, then drains its snapshot
+ * with SPOP in batches and writes each batch as one unordered bulk of $set,
+ * without reading the posts. Any number of instances can sync at once: each
+ * renames to its own snapshot, and a snapshot left behind by an instance that
+ * died is merged back into the dirty set after ten minutes. Writes are
+ * idempotent, so syncing a post twice is harmless.
+ */
 @Service
 @RequiredArgsConstructor
 public class CornService {
 
+    public static final String LIKE_KEY = "post_like:";
+    public static final String DIRTY_KEY = "post_like_dirty";
+    public static final String COUNTS_KEY = "post_like_counts";
+    public static final String LOADED = "_";
+
+    private static final String SNAPSHOT_KEY = "post_like_sync:";
+    private static final String SYNCING_KEY = "post_like_syncing";
+    private static final long STALE_AFTER_MS = 10 * 60 * 1000;
+
+    // KEYS: dirty set, new snapshot, syncing snapshots by start time
+    // ARGV: now, stale cutoff
+    private static final RedisScript<Long> SWAP = new DefaultRedisScript<>(
+            "for _, key in ipairs(redis.call('ZRANGEBYSCORE', KEYS[3], '-inf', ARGV[2])) do "
+                    + "redis.call('SUNIONSTORE', KEYS[1], KEYS[1], key) "
+                    + "redis.call('DEL', key) "
+                    + "redis.call('ZREM', KEYS[3], key) end "
+                    + "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call('RENAME', KEYS[1], KEYS[2]) "
+                    + "redis.call('ZADD', KEYS[3], ARGV[1], KEYS[2]) "
+                    + "return redis.call('SCARD', KEYS[2])",
+            Long.class);
+
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
     private final MongoTemplate mongoTemplate;
-    private final PostRepo postRepo;
 
-    @Scheduled(fixedRate = 1 * 60 * 1000) // every 5 mins
-    public void syncLikesToDB() {
-        // System.out.println("⏰ Running CRON to sync post likes...");
+    @Value("${post.likes.syncBatchSize:500}")
+    private int batchSize;
 
-        Set<String> keys = redisTemplate.keys("post_like:*");
-        if (keys == null || keys.isEmpty())
+    @Scheduled(fixedRate = 1 * 60 * 1000) // every minute
+    public void syncLikesToDB() {
+        String snapshot = SNAPSHOT_KEY + UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        Long dirty = stringRedisTemplate.execute(SWAP, List.of(DIRTY_KEY, snapshot, SYNCING_KEY),
+                String.valueOf(now), String.valueOf(now - STALE_AFTER_MS));
+        if (dirty == null || dirty == 0) {
             return;
+        }
 
-        List<Query> queries = new ArrayList<>();
-        List<Update> updates = new ArrayList<>();
-
-        for (String key : keys) {
-            try {
-                String postId = key.replace("post_like:", "");
-                Set<Object> redisUserIds = redisTemplate.opsForSet().members(key);
-
-                if (redisUserIds == null || redisUserIds.isEmpty())
-                    continue;
-
-                Set<String> redisLikes = redisUserIds.stream()
-                        .map(Object::toString)
-                        .collect(Collectors.toSet());
-
-                // 🧠 Get existing likes from MongoDB
-                Optional<Post> optionalPost = postRepo.findById(postId);
-                Set<String> finalLikes = new HashSet<>(redisLikes);
-
-                BigInteger likeCount = BigInteger.valueOf(finalLikes.size());
-                if (optionalPost.isPresent()) {
-                    Post updatedPost = optionalPost.get();
-                    updatedPost.setLikes(finalLikes);
-                    updatedPost.setLikeCount(likeCount);
+        List<String> batch = List.of();
+        try {
+            while (!(batch = pop(snapshot)).isEmpty()) {
+                write(batch);
+            }
+            stringRedisTemplate.opsForZSet().remove(SYNCING_KEY, snapshot);
+        } catch (RuntimeException e) {
+            // Hand the failed batch and the rest of the snapshot to the next sync
+            if (!batch.isEmpty()) {
+                stringRedisTemplate.opsForSet().add(DIRTY_KEY, batch.toArray(String[]::new));
+            }
+            stringRedisTemplate.opsForSet().unionAndStore(DIRTY_KEY, snapshot, DIRTY_KEY);
+            stringRedisTemplate.delete(snapshot);
+            stringRedisTemplate.opsForZSet().remove(SYNCING_KEY, snapshot);
+            e.printStackTrace();
+        }
+    }
 
-                    String userId = updatedPost.getUserId();
-                    String feedKey = "posts:" + userId;
+    private List<String> pop(String snapshot) {
+        List<String> postIds = stringRedisTemplate.opsForSet().pop(snapshot, batchSize);
+        return postIds == null ? List.of() : postIds;
+    }
 
-                    redisTemplate.opsForHash().put(feedKey, postId, updatedPost);
+    private void write(List<String> postIds) {
+        List<Object> likeSets = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (String postId : postIds) {
+                    operations.opsForSet().members(LIKE_KEY + postId);
                 }
-                // ✅ Prepare update
-                Query query = new Query(Criteria.where("_id").is(postId));
-                Update update = new Update()
-                        .set("likes", finalLikes)
-                        .set("likeCount", likeCount);
-
-                queries.add(query);
-                updates.add(update);
-
-            } catch (Exception e) {
-                // System.err.println("❌ Error preparing update for key: " + key);
-                e.printStackTrace();
+                return null;
             }
-        }
+        });
 
-        try {
-            BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
-            for (int i = 0; i < queries.size(); i++) {
-                bulkOps.updateOne(queries.get(i), updates.get(i));
+        List<Query> queries = new ArrayList<>();
+        List<Update> updates = new ArrayList<>();
+        for (int i = 0; i < postIds.size(); i++) {
+            if (!(likeSets.get(i) instanceof Set<?> members) || members.isEmpty()) {
+                continue; // expired, Mongo already has its last synced state
             }
-            bulkOps.execute();
-
-            // System.out.println("✅ Bulk update completed for " + queries.size() + " posts");
 
-            // Cleanup Redis keys
-            redisTemplate.delete(keys);
+            Set<String> likes = members.stream()
+                    .map(Object::toString)
+                    .filter(member -> !LOADED.equals(member))
+                    .collect(Collectors.toSet());
+            queries.add(Query.query(Criteria.where("_id").is(postIds.get(i))));
+            updates.add(new Update()
+                    .set("likes", likes)
+                    .set("likeCount", BigInteger.valueOf(likes.size())));
+        }
+        if (queries.isEmpty()) {
+            return;
+        }
 
-        } catch (Exception e) {
-            // System.err.println("❌ Bulk update failed");
-            e.printStackTrace();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+        for (int i = 0; i < queries.size(); i++) {
+            bulkOps.updateOne(queries.get(i), updates.get(i));
         }
+        bulkOps.execute();
     }
 }
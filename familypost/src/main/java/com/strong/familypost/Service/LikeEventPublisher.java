@@ -0,0 +1,105 @@
+package com.strong.familypost.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.strong.familypost.Model.Post;
+import com.strong.familypost.Util.KafkaProducer;
+import com.strong.familypost.Util.PostException;
+
+/**
+ * Debounces like notifications per post.
+ * <p>
+ * Likers are collected per post for {@code post.likes.eventWindowMs} and then
+ * published as one LIKE notification per post naming the latest liker and how
+ * many others liked since the last one, so a viral post emits one Kafka record
+ * per window instead of one per tap. A like taken back within the window takes
+ * the liker out again, so the count is of distinct users who still like the
+ * post. Post owners are looked up with one query per window.
+ */
+@Service
+public class LikeEventPublisher {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KafkaProducer kafkaProducer;
+
+    // Liker id to username per post, in the order they liked, so the last
+    // entry is the latest liker. Only touched inside compute or after remove.
+    private final Map<String, LinkedHashMap<String, String>> pending = new ConcurrentHashMap<>();
+
+    public void liked(String postId, String userId, String username) {
+        pending.compute(postId, (id, likers) -> {
+            LinkedHashMap<String, String> next = likers == null ? new LinkedHashMap<>() : likers;
+            next.remove(userId);
+            next.put(userId, username);
+            return next;
+        });
+    }
+
+    public void unliked(String postId, String userId) {
+        pending.computeIfPresent(postId, (id, likers) -> {
+            likers.remove(userId);
+            return likers.isEmpty() ? null : likers;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${post.likes.eventWindowMs:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Map<String, LinkedHashMap<String, String>> window = new HashMap<>();
+        for (String postId : pending.keySet()) {
+            LinkedHashMap<String, String> likers = pending.remove(postId);
+            if (likers != null) {
+                window.put(postId, likers);
+            }
+        }
+
+        Query query = Query.query(Criteria.where("_id").in(window.keySet()));
+        query.fields().include("userId", "thumbnailIds");
+        for (Post post : mongoTemplate.find(query, Post.class)) {
+            LinkedHashMap<String, String> likers = window.get(post.getId());
+            likers.remove(post.getUserId()); // no notification for liking your own post
+            if (likers.isEmpty()) {
+                continue;
+            }
+            Map.Entry<String, String> latest = null;
+            for (Map.Entry<String, String> liker : likers.entrySet()) {
+                latest = liker;
+            }
+
+            Map<String, Object> notification = new HashMap<>();
+            notification.put("type", "LIKE");
+            notification.put("message", likers.size() == 1 ? "liked your post"
+                    : "and " + (likers.size() - 1) + " others liked your post");
+            notification.put("senderId", latest.getKey());
+            notification.put("senderUsername", latest.getValue());
+            notification.put("receiverId", post.getUserId());
+            notification.put("postId", post.getId());
+            if (post.getThumbnailIds() != null && !post.getThumbnailIds().isEmpty()) {
+                notification.put("postThumbId", post.getThumbnailIds().get(0));
+            }
+            notification.put("createdAt", Instant.now());
+            try {
+                kafkaProducer.sendToKafka(notification, "POST_LIKE");
+            } catch (PostException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
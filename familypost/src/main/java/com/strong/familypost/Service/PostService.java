@@ -1,16 +1,40 @@
 package com.strong.familypost.Service;
 
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.MongoExpression;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -18,11 +42,16 @@ import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.strong.familypost.Model.GridPost;
+import com.strong.familypost.Model.LikeState;
 import com.strong.familypost.Model.Post;
+import com.strong.familypost.Model.PostPage;
 import com.strong.familypost.Model.User;
 import com.strong.familypost.Repository.CommentRepo;
 import com.strong.familypost.Repository.PostRepo;
@@ -52,6 +81,68 @@ public class PostService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LikeEventPublisher likeEventPublisher;
+
+    private final ObjectMapper postMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static final Duration LIKES_TTL = Duration.ofDays(7);
+    private static final int MAX_LIKE_LOOKUP = 50;
+
+    public static final String TIMELINE_KEY = "post_timeline:";
+    // Bodies of timeline posts, apart from the posts:{userId} hash that
+    // getUserPosts serves whole
+    public static final String TIMELINE_POSTS_KEY = "post_timeline_posts:";
+    private static final String TIMELINE_LOADED = "_";
+    private static final int TIMELINE_CACHED = 100;
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final Duration TIMELINE_TTL = Duration.ofHours(1);
+    public static final String GRID_KEY = "post_grid:";
+    private static final int GRID_CACHED = MAX_PAGE_SIZE + 1;
+
+    // KEYS: like set, counts hash, dirty set. ARGV: member, post id, TTL in ms.
+    // Returns -1 if the set is not loaded, else count * 2 + (1 if now liked)
+    private static final RedisScript<Long> TOGGLE_LIKE = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end "
+                    + "local liked = 0 "
+                    + "if redis.call('SREM', KEYS[1], ARGV[1]) == 0 then "
+                    + "redis.call('SADD', KEYS[1], ARGV[1]) liked = 1 end "
+                    + "local count = redis.call('SCARD', KEYS[1]) - 1 "
+                    + "redis.call('HSET', KEYS[2], ARGV[2], count) "
+                    + "redis.call('SADD', KEYS[3], ARGV[2]) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[3]) "
+                    + "return count * 2 + liked",
+            Long.class);
+
+    // KEYS: timeline. ARGV: score, post id, posts to keep. Only a loaded
+    // timeline is added to, so an expired one is never recreated without its
+    // marker and TTL. Rank 0 is the loaded marker.
+    private static final RedisScript<Long> ADD_TO_TIMELINE = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) "
+                    + "redis.call('ZREMRANGEBYRANK', KEYS[1], 1, -(tonumber(ARGV[3]) + 1)) "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * Creates the user_created index the timeline and grid page through.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Post.class);
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(Post.class)
+                .forEach(indexOps::ensureIndex);
+    }
+
     private String getAuthenticatedUserId() {
         Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
 
@@ -124,6 +215,8 @@ public class PostService {
             String jsonPost = mapper.writeValueAsString(savedPost);
 
             redisTemplate.opsForHash().put(cacheKey, postId, jsonPost);
+            addToTimeline(savedPost);
+            stringRedisTemplate.delete(GRID_KEY + savedPost.getUserId());
 
             return savedPost;
         } catch (PostException e) {
@@ -165,25 +258,11 @@ public class PostService {
         // Delete post from database
         postRepo.deleteById(postId);
 
-        // Update Redis cache - remove the post if it exists in cache
-        String cacheKey = "posts:" + post.getUserId();
-        List<?> cachedList = (List<?>) redisTemplate.opsForValue().get(cacheKey);
-
-        if (cachedList != null) {
-            List<Post> updatedList = new ArrayList<>();
-
-            for (Object obj : cachedList) {
-                if (obj instanceof Post) {
-                    Post cachedPost = (Post) obj;
-                    if (!cachedPost.getId().equals(postId)) {
-                        updatedList.add(cachedPost); // Keep posts that aren't being deleted
-                    }
-                }
-            }
-
-            // Update the cache with the filtered list
-            redisTemplate.opsForValue().set(cacheKey, updatedList, Duration.ofMinutes(20));
-        }
+        // Update Redis cache - drop the post and the cached timeline and grid,
+        // which are rebuilt from the index on the next read
+        redisTemplate.opsForHash().delete("posts:" + post.getUserId(), postId);
+        stringRedisTemplate.delete(List.of(TIMELINE_KEY + post.getUserId(), TIMELINE_POSTS_KEY + post.getUserId(),
+                GRID_KEY + post.getUserId()));
     }
 
     /**
@@ -228,6 +307,268 @@ public class PostService {
         }
     }
 
+    /**
+     * Retrieves one page of a user's posts, newest first.
+     * <p>
+     * The newest {@value #TIMELINE_CACHED} post ids of a user are kept in the
+     * sorted set post_timeline:{userId}, scored by creation time, with the
+     * bodies in the posts:{userId} hash, so the first page is served from
+     * Redis. Pages after a cursor are read from Mongo on the
+     * {userId, createdAt, _id} index. The cursor is the creation time and id
+     * of the last post of the previous page, so posts added in the meantime
+     * don't shift later pages.
+     *
+     * @param userId The user ID whose posts to retrieve
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param size   The number of posts per page, at most {@value #MAX_PAGE_SIZE}
+     * @return The page of posts and the cursor of the next page
+     * @throws PostException if the size or cursor is invalid
+     */
+    public PostPage<Post> getUserTimeline(String userId, String cursor, int size) throws PostException {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new PostException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (cursor == null || cursor.isBlank()) {
+            return getFirstPage(userId, size);
+        }
+
+        Query query = Query.query(afterCursor(userId, cursor))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(size + 1);
+        return toPage(mongoTemplate.find(query, Post.class), size);
+    }
+
+    /**
+     * Matches the posts of a user that come after a cursor in newest-first
+     * order.
+     */
+    private Criteria afterCursor(String userId, String cursor) throws PostException {
+        String[] parts = cursor.split("_", 2);
+        LocalDateTime createdAt;
+        try {
+            createdAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[0])), ZoneOffset.UTC);
+        } catch (NumberFormatException e) {
+            throw new PostException("Invalid cursor: " + cursor);
+        }
+        if (parts.length < 2 || !ObjectId.isValid(parts[1])) {
+            throw new PostException("Invalid cursor: " + cursor);
+        }
+
+        return Criteria.where("userId").is(userId).orOperator(
+                Criteria.where("createdAt").lt(createdAt),
+                Criteria.where("createdAt").is(createdAt).and("_id").lt(new ObjectId(parts[1])));
+    }
+
+    private PostPage<Post> getFirstPage(String userId, int size) throws PostException {
+        String timelineKey = TIMELINE_KEY + userId;
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(timelineKey, 0, size);
+        if (ids == null || ids.isEmpty()) {
+            return toPage(loadTimeline(userId), size);
+        }
+
+        // At most TIMELINE_CACHED ids are kept, more than a page, so a set with
+        // fewer than size + 1 posts holds all of them
+        List<String> postIds = ids.stream().filter(id -> !TIMELINE_LOADED.equals(id)).toList();
+        return toPage(getPostsByIds(userId, postIds), size);
+    }
+
+    private PostPage<Post> toPage(List<Post> posts, int size) {
+        if (posts.size() <= size) {
+            return new PostPage<>(posts, null);
+        }
+        List<Post> page = new ArrayList<>(posts.subList(0, size));
+        Post last = page.get(size - 1);
+        return new PostPage<>(page, createdAtMillis(last) + "_" + last.getId());
+    }
+
+    private static long createdAtMillis(Post post) {
+        return post.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Retrieves one page of a user's profile grid, newest first, paged with
+     * the same cursors as {@link #getUserTimeline}.
+     * <p>
+     * Mongo only returns the fields of a tile: the first thumbnail id is
+     * sliced out and the media count is computed in the projection. The
+     * newest {@value #GRID_CACHED} tiles are cached as one compact JSON array
+     * in post_grid:{userId}, which is dropped when the user creates or
+     * deletes a post. Like counts change too often to cache and are read
+     * from {@link CornService#COUNTS_KEY} with one HMGET.
+     *
+     * @param userId The user ID whose grid to retrieve
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param size   The number of posts per page, at most {@value #MAX_PAGE_SIZE}
+     * @return The page of grid posts and the cursor of the next page
+     * @throws PostException if the size or cursor is invalid
+     */
+    public PostPage<GridPost> getUserGrid(String userId, String cursor, int size) throws PostException {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new PostException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        List<GridTile> tiles;
+        if (cursor == null || cursor.isBlank()) {
+            tiles = getCachedGrid(userId);
+        } else {
+            tiles = findGridTiles(afterCursor(userId, cursor), size + 1);
+        }
+
+        boolean more = tiles.size() > size;
+        if (more) {
+            tiles = tiles.subList(0, size);
+        }
+        List<Object> counts = tiles.isEmpty() ? List.of()
+                : stringRedisTemplate.opsForHash().multiGet(CornService.COUNTS_KEY,
+                        tiles.stream().map(tile -> (Object) tile.id()).toList());
+
+        List<GridPost> posts = new ArrayList<>();
+        for (int i = 0; i < tiles.size(); i++) {
+            GridTile tile = tiles.get(i);
+            Object count = counts.get(i);
+            posts.add(new GridPost(tile.id(), tile.thumbnailId(), tile.mediaCount(),
+                    count != null ? Long.parseLong(count.toString()) : tile.likeCount()));
+        }
+
+        GridTile last = more ? tiles.get(size - 1) : null;
+        return new PostPage<>(posts, last != null ? last.createdAt() + "_" + last.id() : null);
+    }
+
+    /**
+     * A grid post with its creation time in epoch millis, for the cursor.
+     * Serialized as an array to keep the cached grid small.
+     */
+    @JsonFormat(shape = JsonFormat.Shape.ARRAY)
+    private record GridTile(String id, String thumbnailId, int mediaCount, long likeCount, long createdAt) {
+    }
+
+    private List<GridTile> getCachedGrid(String userId) throws PostException {
+        String gridKey = GRID_KEY + userId;
+        String cached = stringRedisTemplate.opsForValue().get(gridKey);
+        if (cached != null) {
+            try {
+                return postMapper.readValue(cached, new TypeReference<List<GridTile>>() {
+                });
+            } catch (JsonProcessingException e) {
+                // Rebuilt below
+            }
+        }
+
+        List<GridTile> tiles = findGridTiles(Criteria.where("userId").is(userId), GRID_CACHED);
+        try {
+            stringRedisTemplate.opsForValue().set(gridKey, postMapper.writeValueAsString(tiles), TIMELINE_TTL);
+        } catch (JsonProcessingException e) {
+            throw new PostException("Error Parsing Json of Grid: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        return tiles;
+    }
+
+    private List<GridTile> findGridTiles(Criteria criteria, int limit) {
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(limit);
+        query.fields().include("_id", "likeCount", "createdAt").slice("thumbnailIds", 1);
+        query.fields().project(MongoExpression.create("{ $size: { $ifNull: ['$mediaIds', []] } }")).as("mediaCount");
+
+        List<GridTile> tiles = new ArrayList<>();
+        for (Document doc : mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Post.class))) {
+            List<?> thumbnails = doc.getList("thumbnailIds", Object.class);
+            Object likeCount = doc.get("likeCount");
+            // Read createdAt the way Post does, so the cursor matches the timeline's
+            LocalDateTime createdAt = mongoTemplate.getConverter().getConversionService()
+                    .convert(doc.getDate("createdAt"), LocalDateTime.class);
+            tiles.add(new GridTile(
+                    doc.getObjectId("_id").toHexString(),
+                    thumbnails != null && !thumbnails.isEmpty() ? String.valueOf(thumbnails.get(0)) : null,
+                    doc.getInteger("mediaCount", 0),
+                    likeCount != null ? Long.parseLong(likeCount.toString()) : 0,
+                    createdAt.toInstant(ZoneOffset.UTC).toEpochMilli()));
+        }
+        return tiles;
+    }
+
+    /**
+     * Rebuilds a user's cached timeline from the newest posts in Mongo. The
+     * {@link #TIMELINE_LOADED} member, scored 0, keeps the set of a user
+     * without posts from reading as not loaded.
+     */
+    private List<Post> loadTimeline(String userId) throws PostException {
+        Query query = Query.query(Criteria.where("userId").is(userId))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "_id"))
+                .limit(TIMELINE_CACHED);
+        List<Post> posts = mongoTemplate.find(query, Post.class);
+
+        Set<TypedTuple<String>> entries = new HashSet<>();
+        entries.add(TypedTuple.of(TIMELINE_LOADED, 0d));
+        for (Post post : posts) {
+            entries.add(TypedTuple.of(post.getId(), (double) createdAtMillis(post)));
+        }
+        String timelineKey = TIMELINE_KEY + userId;
+        stringRedisTemplate.opsForZSet().add(timelineKey, entries);
+        stringRedisTemplate.expire(timelineKey, TIMELINE_TTL);
+        cachePosts(userId, posts);
+        return posts;
+    }
+
+    /**
+     * Adds a new post to its owner's cached timeline, if there is one, and
+     * trims the timeline to the newest {@value #TIMELINE_CACHED} posts.
+     */
+    private void addToTimeline(Post post) {
+        stringRedisTemplate.execute(ADD_TO_TIMELINE, List.of(TIMELINE_KEY + post.getUserId()),
+                String.valueOf(createdAtMillis(post)), post.getId(), String.valueOf(TIMELINE_CACHED));
+    }
+
+    /**
+     * Reads posts from the {@link #TIMELINE_POSTS_KEY} hash with one HMGET,
+     * falling back to Mongo for the ones not cached.
+     *
+     * @return the posts in the order of the ids; posts that no longer exist are left out
+     */
+    private List<Post> getPostsByIds(String userId, List<String> postIds) throws PostException {
+        String cacheKey = TIMELINE_POSTS_KEY + userId;
+        List<Object> cached = stringRedisTemplate.opsForHash().multiGet(cacheKey, new ArrayList<>(postIds));
+
+        Map<String, Post> posts = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < postIds.size(); i++) {
+            Object value = cached.get(i);
+            try {
+                if (value instanceof String json) {
+                    posts.put(postIds.get(i), postMapper.readValue(json, Post.class));
+                    continue;
+                }
+            } catch (JsonProcessingException e) {
+                // Re-read below
+            }
+            missing.add(postIds.get(i));
+        }
+
+        if (!missing.isEmpty()) {
+            List<Post> fromDb = mongoTemplate.find(Query.query(Criteria.where("_id").in(missing)), Post.class);
+            fromDb.forEach(post -> posts.put(post.getId(), post));
+            cachePosts(userId, fromDb);
+        }
+        return postIds.stream().map(posts::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private void cachePosts(String userId, List<Post> posts) throws PostException {
+        if (posts.isEmpty()) {
+            return;
+        }
+        Map<String, String> postMap = new HashMap<>();
+        try {
+            for (Post post : posts) {
+                postMap.put(post.getId(), postMapper.writeValueAsString(post));
+            }
+        } catch (JsonProcessingException e) {
+            throw new PostException("Error Parsing Json of Post: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        String cacheKey = TIMELINE_POSTS_KEY + userId;
+        stringRedisTemplate.opsForHash().putAll(cacheKey, postMap);
+        stringRedisTemplate.expire(cacheKey, TIMELINE_TTL);
+    }
+
     /**
      * Retrieves all posts for a specific user, with caching.
      * 
@@ -236,7 +577,9 @@ public class PostService {
      * @return A List containing all Post objects for the user
      * @throws PostException if there's an error retrieving the posts or if privacy
      *                       settings prevent access
+     * @deprecated loads every post of the user; use {@link #getUserTimeline}
      */
+    @Deprecated
     public List<Post> getUserPosts(String userId) throws PostException {
         String cacheKey = "posts:" + userId;
 
@@ -313,22 +656,157 @@ public class PostService {
         }
     }
 
-    public boolean toggleLike(String postId, String userId) throws PostException {
-        String redisLikeKey = "post_like:" + postId;
+    /**
+     * Likes or unlikes a post in one round trip. The script flips the user's
+     * membership in the post's like set, stores the new count in
+     * {@link CornService#COUNTS_KEY} and marks the post dirty for the sync, so
+     * two racing taps always leave the set and the count consistent.
+     *
+     * @return whether the user now likes the post, and the new like count
+     * @throws PostException if the user is not the logged-in user, there is no
+     *                       such post, or the like set could not be loaded
+     */
+    public LikeState toggleLike(String postId, String userId) throws PostException {
+        if (!userId.equals(getAuthenticatedUserId())) {
+            throw new PostException("You are not authorized to access this resource", HttpStatus.FORBIDDEN);
+        }
+
+        String redisLikeKey = CornService.LIKE_KEY + postId;
+        List<String> keys = List.of(redisLikeKey, CornService.COUNTS_KEY, CornService.DIRTY_KEY);
+        String member = likeMember(userId);
+        String ttl = String.valueOf(LIKES_TTL.toMillis());
 
-        // Step 1: Check if user already liked
-        Boolean hasLiked = redisTemplate.opsForSet().isMember(redisLikeKey, userId);
+        Long result = stringRedisTemplate.execute(TOGGLE_LIKE, keys, member, postId, ttl);
+        if (result == null || result < 0) {
+            ensureLikesLoaded(postId, redisLikeKey);
+            result = stringRedisTemplate.execute(TOGGLE_LIKE, keys, member, postId, ttl);
+        }
+        if (result == null || result < 0) {
+            // The set expired or was purged again between loading and the retry
+            throw new PostException("Could not update the like, please try again", HttpStatus.SERVICE_UNAVAILABLE);
+        }
 
-        boolean isLiked;
-        if (Boolean.TRUE.equals(hasLiked)) {
-            // User already liked → remove like
-            redisTemplate.opsForSet().remove(redisLikeKey, userId);
-            isLiked = false;
+        LikeState state = new LikeState(result % 2 == 1, result / 2);
+        if (state.isLiked()) {
+            likeEventPublisher.liked(postId, userId, getAuthenticatedUsername(userId));
         } else {
-            // User hasn't liked → add like
-            redisTemplate.opsForSet().add(redisLikeKey, userId);
-            isLiked = true;
+            likeEventPublisher.unliked(postId, userId);
+        }
+        return state;
+    }
+
+    /**
+     * Looks up, for a page of posts, whether the viewer likes each post and
+     * its like count, without shipping the liker sets. Membership of the
+     * viewer and of the {@link CornService#LOADED} marker is read with one
+     * SMISMEMBER per post and the counts with one HMGET, all in a single
+     * pipeline. Only posts whose like set is not in Redis, or whose count is
+     * missing, fall back to Mongo.
+     *
+     * @return like state per post id, in request order; unknown posts are left out
+     * @throws PostException if more than {@value #MAX_LIKE_LOOKUP} posts are asked for
+     */
+    public Map<String, LikeState> getLikeStates(String viewerId, List<String> postIds) throws PostException {
+        List<String> ids = postIds.stream().distinct().toList();
+        if (ids.size() > MAX_LIKE_LOOKUP) {
+            throw new PostException("At most " + MAX_LIKE_LOOKUP + " posts can be looked up at once");
+        }
+        Map<String, LikeState> states = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return states;
+        }
+
+        byte[] viewer = likeMember(viewerId).getBytes(StandardCharsets.UTF_8);
+        byte[] loaded = likeMember(CornService.LOADED).getBytes(StandardCharsets.UTF_8);
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String postId : ids) {
+                connection.setCommands().sMIsMember(
+                        (CornService.LIKE_KEY + postId).getBytes(StandardCharsets.UTF_8), viewer, loaded);
+            }
+            connection.hashCommands().hMGet(CornService.COUNTS_KEY.getBytes(StandardCharsets.UTF_8),
+                    ids.stream().map(id -> id.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new));
+            return null;
+        });
+
+        List<?> counts = (List<?>) results.get(ids.size());
+        List<String> notLoaded = new ArrayList<>();
+        List<String> noCount = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            List<?> members = (List<?>) results.get(i);
+            Object count = counts.get(i);
+            if (!Boolean.TRUE.equals(members.get(1))) {
+                notLoaded.add(ids.get(i));
+            }
+            if (count == null) {
+                noCount.add(ids.get(i));
+            }
+            states.put(ids.get(i), new LikeState(Boolean.TRUE.equals(members.get(0)),
+                    count == null ? 0 : Long.parseLong(count.toString())));
+        }
+
+        if (!noCount.isEmpty()) {
+            Query query = Query.query(Criteria.where("_id").in(noCount));
+            query.fields().include("_id", "likeCount");
+            Map<String, BigInteger> stored = new HashMap<>();
+            for (Post post : mongoTemplate.find(query, Post.class)) {
+                stored.put(post.getId(), post.getLikeCount() != null ? post.getLikeCount() : BigInteger.ZERO);
+            }
+            for (String postId : noCount) {
+                if (stored.containsKey(postId)) {
+                    states.get(postId).setLikeCount(stored.get(postId).longValue());
+                } else if (notLoaded.contains(postId)) {
+                    states.remove(postId); // neither in Redis nor in Mongo
+                }
+            }
+        }
+
+        notLoaded.removeIf(postId -> !states.containsKey(postId));
+        if (!notLoaded.isEmpty()) {
+            Query query = Query.query(Criteria.where("_id").in(notLoaded).and("likes").is(viewerId));
+            query.fields().include("_id");
+            for (Post post : mongoTemplate.find(query, Post.class)) {
+                states.get(post.getId()).setLiked(true);
+            }
+        }
+        return states;
+    }
+
+    // Like sets are written through redisTemplate, so members are JSON strings
+    @SuppressWarnings("unchecked")
+    private String likeMember(String userId) {
+        RedisSerializer<Object> serializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        return new String(serializer.serialize(userId), StandardCharsets.UTF_8);
+    }
+
+    private String getAuthenticatedUsername(String userId) {
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (principal instanceof User user && userId.equals(user.getId())) {
+            return user.getUsername();
+        }
+        return null;
+    }
+
+    /**
+     * Loads the likes of a post from Mongo into its Redis set the first time
+     * the post is liked or unliked, or after the set has expired.
+     */
+    private void ensureLikesLoaded(String postId, String redisLikeKey) throws PostException {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(redisLikeKey))) {
+            return;
+        }
+
+        Query query = Query.query(Criteria.where("_id").is(postId));
+        query.fields().include("likes");
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post == null) {
+            throw new PostException("No Post with postId: " + postId);
+        }
+
+        List<Object> members = new ArrayList<>();
+        members.add(CornService.LOADED);
+        if (post.getLikes() != null) {
+            members.addAll(post.getLikes());
         }
-        return isLiked;
+        redisTemplate.opsForSet().add(redisLikeKey, members.toArray());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,275 @@
+package com.strong.familypost.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.strong.familyjwt.deletion.AbstractUserDeletionWorker;
+import com.strong.familyjwt.deletion.UserDeletion;
+import com.strong.familypost.Model.Comment;
+import com.strong.familypost.Model.Post;
+import com.strong.familypost.Util.KafkaProducer;
+import com.strong.familypost.Util.PostException;
+
+/**
+ * Purges the posts, media, comments and likes of deleted users, in batches of
+ * {@code post.deletion.batchSize} documents with {@code post.deletion.pauseMs}
+ * between them. The finished purge is reported on user-delete-complete.
+ *
+ * @author FamilyGram
+ * @version 1.0
+ */
+@Service
+public class UserDeletionWorker extends AbstractUserDeletionWorker {
+
+    public static final String SERVICE = "familypost";
+
+    // KEYS: counts hash, dirty set, then one like set per post. ARGV: member,
+    // then the post ids in KEYS order. Same bookkeeping as the toggle script
+    // in PostService, so the sync and the cached counts see the unlike.
+    private static final RedisScript<Long> UNLIKE_ALL = new DefaultRedisScript<>(
+            "local removed = 0 "
+                    + "for i = 3, #KEYS do "
+                    + "if redis.call('SREM', KEYS[i], ARGV[1]) == 1 then "
+                    + "redis.call('HSET', KEYS[1], ARGV[i - 1], redis.call('SCARD', KEYS[i]) - 1) "
+                    + "redis.call('SADD', KEYS[2], ARGV[i - 1]) "
+                    + "removed = removed + 1 end end "
+                    + "return removed",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private KafkaProducer kafkaProducer;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Predicate<UserDeletion>> steps = List.of(
+            this::purgePosts,
+            this::purgeComments,
+            this::purgeLikes,
+            deletion -> {
+                redisTemplate.delete(List.of("posts:" + deletion.getUserId(),
+                        PostService.TIMELINE_KEY + deletion.getUserId(),
+                        PostService.TIMELINE_POSTS_KEY + deletion.getUserId(),
+                        PostService.GRID_KEY + deletion.getUserId()));
+                return false;
+            });
+
+    public UserDeletionWorker(@Value("${post.deletion.batchSize:500}") int batchSize,
+            @Value("${post.deletion.pauseMs:200}") long pauseMs,
+            @Value("${post.deletion.pollMs:5000}") long pollMs) {
+        super(SERVICE, batchSize, pauseMs, pollMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> entity : List.of(UserDeletion.class, Post.class, Comment.class)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            resolver.resolveIndexFor(entity).forEach(indexOps::ensureIndex);
+        }
+    }
+
+    @KafkaListener(topics = "user-delete", groupId = "familypost-deletion")
+    public void consumeUserDeletes(String message) throws JsonProcessingException {
+        Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<>() {});
+        if (payload.get("id") instanceof String userId) {
+            enqueue(userId);
+        }
+    }
+
+    @Override
+    protected List<Predicate<UserDeletion>> steps() {
+        return steps;
+    }
+
+    @Override
+    protected void reportDone(UserDeletion deletion) {
+        try {
+            kafkaProducer.sendToKafka(Map.of("id", deletion.getUserId(), "service", SERVICE,
+                    "deleted", deletion.getDeleted()), "DELETE_COMPLETE");
+        } catch (PostException e) {
+            // The entry itself already records the purge as done
+        }
+    }
+
+    /**
+     * Deletes a batch of the user's posts with their media, comments and Redis
+     * keys. Comments of a busy post are deleted in batches of their own. Every
+     * post costs several Mongo round trips, so the batch is cut short once
+     * they add up to batchSize rather than once batchSize posts are taken.
+     */
+    private boolean purgePosts(UserDeletion deletion) {
+        Query query = Query.query(Criteria.where("userId").is(deletion.getUserId())).limit(batchSize());
+        query.fields().include("mediaIds", "thumbnailIds");
+        List<Post> posts = mongoTemplate.find(query, Post.class);
+
+        List<String> postIds = new ArrayList<>(posts.size());
+        // The find above and the final remove
+        int operations = 2;
+        for (Post post : posts) {
+            if (operations >= batchSize()) {
+                break;
+            }
+            Query comments = Query.query(Criteria.where("postId").is(post.getId()));
+            while (deleteBatch(comments, Comment.class, deletion) >= batchSize()) {
+                if (!pause()) {
+                    return true;
+                }
+                operations = 2;
+            }
+            operations += 2 + deleteMedia(post.getMediaIds()) + deleteMedia(post.getThumbnailIds());
+            redisTemplate.delete(List.of("comments:" + post.getId(), CornService.LIKE_KEY + post.getId()));
+            redisTemplate.opsForHash().delete(CornService.COUNTS_KEY, post.getId());
+            postIds.add(post.getId());
+        }
+
+        if (!postIds.isEmpty()) {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(postIds)), Post.class);
+            deletion.setDeleted(deletion.getDeleted() + postIds.size());
+        }
+        return postIds.size() < posts.size() || posts.size() >= batchSize();
+    }
+
+    /**
+     * Deletes a batch of the user's comments on other users' posts.
+     */
+    private boolean purgeComments(UserDeletion deletion) {
+        Query query = Query.query(Criteria.where("userId").is(deletion.getUserId())).limit(batchSize());
+        query.fields().include("postId");
+        List<Comment> comments = mongoTemplate.find(query, Comment.class);
+        if (comments.isEmpty()) {
+            return false;
+        }
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Comment comment : comments) {
+                    operations.opsForHash().delete("comments:" + comment.getPostId(), comment.getId());
+                }
+                return null;
+            }
+        });
+
+        List<String> ids = comments.stream().map(Comment::getId).toList();
+        mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), Comment.class);
+        deletion.setDeleted(deletion.getDeleted() + ids.size());
+        return comments.size() >= batchSize();
+    }
+
+    /**
+     * Takes the user out of the likes of a batch of the posts they like,
+     * found through the multikey index on likes. Unliked posts drop out of
+     * the query, so no cursor is needed. The Redis like sets of those posts
+     * are updated by one script that also rewrites their cached counts and
+     * marks the posts dirty for the sync.
+     */
+    private boolean purgeLikes(UserDeletion deletion) {
+        String userId = deletion.getUserId();
+        Query liked = Query.query(Criteria.where("likes").is(userId)).limit(batchSize());
+        liked.fields().include("_id");
+        List<Document> ids = mongoTemplate.find(liked, Document.class, "posts");
+        if (ids.isEmpty()) {
+            return false;
+        }
+
+        List<Object> postIds = ids.stream().map(id -> id.get("_id")).toList();
+        AggregationExpression remaining = context -> new Document("$setDifference",
+                List.of("$likes", List.of(userId)));
+        // likeCount is a BigInteger, which is stored as a string
+        AggregationExpression count = context -> new Document("$toString", new Document("$size", "$likes"));
+        AggregationUpdate unlike = AggregationUpdate.update()
+                .set("likes").toValue(remaining)
+                .set("likeCount").toValue(count);
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(postIds)), unlike, "posts");
+
+        List<String> keys = new ArrayList<>(postIds.size() + 2);
+        List<String> args = new ArrayList<>(postIds.size() + 1);
+        keys.add(CornService.COUNTS_KEY);
+        keys.add(CornService.DIRTY_KEY);
+        args.add(likeMember(userId));
+        for (Object postId : postIds) {
+            keys.add(CornService.LIKE_KEY + postId);
+            args.add(postId.toString());
+        }
+        stringRedisTemplate.execute(UNLIKE_ALL, keys, args.toArray());
+        return ids.size() >= batchSize();
+    }
+
+    // Like sets are written through redisTemplate, so members are JSON strings
+    @SuppressWarnings("unchecked")
+    private String likeMember(String userId) {
+        RedisSerializer<Object> serializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        return new String(serializer.serialize(userId), StandardCharsets.UTF_8);
+    }
+
+    private long deleteBatch(Query filter, Class<?> entity, UserDeletion deletion) {
+        Query query = Query.of(filter).limit(batchSize());
+        query.fields().include("_id");
+        List<Document> batch = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(entity));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Object> ids = batch.stream().map(document -> document.get("_id")).toList();
+        long removed = mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids)), entity).getDeletedCount();
+        deletion.setDeleted(deletion.getDeleted() + removed);
+        return batch.size();
+    }
+
+    /**
+     * @return the Mongo round trips spent, two per file for its GridFS entry
+     *         and chunks.
+     */
+    private int deleteMedia(List<String> fileIds) {
+        if (fileIds == null) {
+            return 0;
+        }
+        for (String fileId : fileIds) {
+            try {
+                storageService.deleteMedia(fileId);
+            } catch (PostException e) {
+                // already gone
+            }
+        }
+        return 2 * fileIds.size();
+    }
+}
@@ -1,18 +1,13 @@
 package com.strong.familypost.Util;
 
-import java.util.Date;
-
-import javax.crypto.SecretKey;
-
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import com.strong.familyjwt.JwtVerifier;
+
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.io.Decoders;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
 @Component
 public class JwtUtil {
@@ -20,53 +15,25 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String secretKey;
 
-    /**
-     * Extracts the user email from the JWT.
-     * 
-     * @param token JWT token
-     * @return User email
-     */
-    public String extractUserEmail(String token) {
-        return extractClaims(token).getSubject();
-    }
+    @Value("${jwt.verifierCacheSize:10000}")
+    private int verifierCacheSize;
 
-    /**
-     * Validates the given JWT.
-     * 
-     * @param token JWT token
-     * @return true if valid, false otherwise
-     */
-    public boolean validateToken(String token) {
-        try {
-            return extractClaims(token).getExpiration().after(new Date());
-        } catch (ExpiredJwtException e) {
-            return false; // Token expired
-        } catch (JwtException e) {
-            return false; // Invalid token
-        }
+    private JwtVerifier verifier;
+
+    @PostConstruct
+    public void init() {
+        verifier = new JwtVerifier(secretKey, verifierCacheSize);
     }
 
     /**
-     * Extracts claims from JWT.
+     * Verifies the JWT once and returns its claims. Expired, malformed or
+     * wrongly signed tokens are rejected.
      * 
      * @param token JWT token
      * @return Claims
+     * @throws JwtException if the token is not valid
      */
-    public Claims extractClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigninKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
-
-    /**
-     * Provides the signing key.
-     * 
-     * @return SecretKey
-     */
-    private SecretKey getSigninKey() {
-        byte[] keyBytes = Decoders.BASE64URL.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public Claims extractClaims(String token) throws JwtException {
+        return verifier.verify(token);
     }
 }
@@ -25,8 +25,9 @@ public class KafkaProducer {
 
     public void sendToKafka(Object payload, String type) throws PostException {
         String topic = switch (type) {
-            case "POST_LIKE" -> "post_like";
+            case "POST_LIKE" -> "post-like";
             case "POST_COMMENT" -> "post-comment";
+            case "DELETE_COMPLETE" -> "user-delete-complete";
             default -> throw new RuntimeException("Unknown type");
         };
         try {